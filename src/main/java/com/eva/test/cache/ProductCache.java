@@ -0,0 +1,162 @@
+package com.eva.test.cache;
+
+import com.eva.test.config.ProductProperties;
+import com.eva.test.dto.ProductDTO;
+import com.eva.test.event.ProductChangedEvent;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of single products, bounded by size and TTL.
+ * <p>
+ * A miss puts a pending entry in the cache and loads on the calling thread, outside of
+ * Caffeine's per-key lock: a virtual thread blocking on the database while holding it would pin
+ * its carrier. Concurrent calls for the same key wait for that load. {@link #invalidate} removes
+ * a pending entry as well, so a load that read the row before a concurrent write committed only
+ * answers the calls already waiting for it and is never left behind by that write's
+ * invalidation. Bulk reads are only cached if nothing was invalidated while they ran.
+ * <p>
+ * Writes through other instances arrive as {@link ProductChangedEvent}s from the change feed
+ * relay, so an entry may be served for up to {@code products.changes.relay-interval} after
+ * a product was written elsewhere, and so may the ETag derived from it.
+ */
+@Component
+public class ProductCache {
+    private final boolean enabled;
+    private final AsyncCache<Long, Outcome> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+    // Failed loads complete normally (see get), so Caffeine's own count stays at 0.
+    private final LongAdder loadFailures = new LongAdder();
+
+    public ProductCache(ProductProperties productProperties) {
+        ProductProperties.Cache properties = productProperties.getCache();
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .buildAsync();
+    }
+
+    public ProductDTO get(Long id, Function<Long, ProductDTO> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        CompletableFuture<Outcome> load = new CompletableFuture<>();
+        CompletableFuture<Outcome> entry = cache.get(id, (key, executor) -> load);
+        if (entry != load) {
+            return entry.join().product();
+        }
+        try {
+            ProductDTO product = loader.apply(id);
+            load.complete(new Outcome(product, null));
+            return product;
+        } catch (RuntimeException | Error ex) {
+            // Completed normally because Caffeine logs every failed future as a warning; it is
+            // taken out first so the next call loads again.
+            cache.asMap().remove(id, load);
+            loadFailures.increment();
+            load.complete(new Outcome(null, ex));
+            throw ex;
+        }
+    }
+
+    /**
+     * The cached product, or {@code null} without loading it or waiting for a running load.
+     */
+    public ProductDTO getIfPresent(Long id) {
+        if (!enabled) {
+            return null;
+        }
+        CompletableFuture<Outcome> entry = cache.getIfPresent(id);
+        return entry != null && entry.isDone() ? entry.join().value() : null;
+    }
+
+    /**
+     * The cached products among {@code ids}, keyed by id, without loading the others.
+     */
+    public Map<Long, ProductDTO> getAllPresent(Collection<Long> ids) {
+        Map<Long, ProductDTO> present = new HashMap<>();
+        for (Long id : ids) {
+            ProductDTO product = getIfPresent(id);
+            if (product != null) {
+                present.put(id, product);
+            }
+        }
+        return present;
+    }
+
+    /**
+     * Taken before reading products from the database that are to be handed to
+     * {@link #putAllIfUnchanged}.
+     */
+    public long invalidationStamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Caches products read after {@code stamp} was taken, unless any product was invalidated since:
+     * the read may then have missed that write. Cached entries are left as they are.
+     */
+    public void putAllIfUnchanged(long stamp, Collection<ProductDTO> products) {
+        if (!enabled) {
+            return;
+        }
+        for (ProductDTO product : products) {
+            // Checked inside the per-key compute: an invalidation that bumps the counter after
+            // the check still waits for it and then removes the entry.
+            cache.asMap().computeIfAbsent(product.getId(), id -> invalidations.get() == stamp
+                    ? CompletableFuture.completedFuture(new Outcome(product, null)) : null);
+        }
+    }
+
+    public void invalidate(Long id) {
+        invalidations.incrementAndGet();
+        cache.synchronous().invalidate(id);
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    public long loadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(event.getProductId());
+    }
+
+    private record Outcome(ProductDTO value, Throwable failure) {
+
+        /**
+         * The loaded product, or the loading call's failure rethrown as is so it maps to the same
+         * response.
+         */
+        ProductDTO product() {
+            if (failure instanceof RuntimeException ex) {
+                throw ex;
+            }
+            if (failure instanceof Error error) {
+                throw error;
+            }
+            return value;
+        }
+    }
+}
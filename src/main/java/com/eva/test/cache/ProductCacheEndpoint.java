@@ -0,0 +1,34 @@
+package com.eva.test.cache;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes {@link ProductCache} statistics at {@code /actuator/productcache}.
+ */
+@Component
+@Endpoint(id = "productcache")
+@RequiredArgsConstructor
+public class ProductCacheEndpoint {
+    private final ProductCache productCache;
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        CacheStats stats = productCache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", productCache.size());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("loadFailureCount", productCache.loadFailureCount());
+        result.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+}
@@ -0,0 +1,274 @@
+package com.eva.test.changes;
+
+import com.eva.test.config.ProductProperties;
+import com.eva.test.dto.ProductChangesDTO;
+import com.eva.test.repository.ProductChangeRepository;
+import com.eva.test.service.ProductService;
+import lombok.extern.slf4j.Slf4j;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Long-poll and Server-Sent Events delivery of the product change feed. Waiting clients hold no
+ * thread; one scheduled task checks the feed head for all of them and fetches each distinct
+ * position once, however many clients are waiting at it. Writes made through other instances
+ * are picked up the same way as local ones.
+ * <p>
+ * The scheduled task only queues events; sender threads of their own write them to the SSE
+ * clients, whose sockets may block, so a slow client never holds up the scheduler. A client
+ * that lets {@code max-queued-events} pile up is disconnected and resumes with
+ * {@code Last-Event-ID} when it reconnects.
+ */
+@Slf4j
+@Component
+public class ProductChangeFeed implements SchedulingConfigurer {
+    static final String EVENT_NAME = "changes";
+    private static final Duration PRUNE_INTERVAL = Duration.ofHours(1);
+
+    private final ProductService productService;
+    private final ProductChangeRepository productChangeRepository;
+    private final ProductProperties productProperties;
+
+    private final Executor senders;
+
+    private final Set<LongPoll> longPolls = ConcurrentHashMap.newKeySet();
+    private final Set<Stream> streams = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ProductChangeFeed(ProductService productService, ProductChangeRepository productChangeRepository,
+                             ProductProperties productProperties) {
+        this(productService, productChangeRepository, productProperties, Executors.newFixedThreadPool(
+                productProperties.getChanges().getSenderThreads(),
+                Thread.ofPlatform().name("change-feed-sender-", 0).daemon().factory()));
+    }
+
+    ProductChangeFeed(ProductService productService, ProductChangeRepository productChangeRepository,
+                      ProductProperties productProperties, Executor senders) {
+        this.productService = productService;
+        this.productChangeRepository = productChangeRepository;
+        this.productProperties = productProperties;
+        this.senders = senders;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (senders instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(this::deliver, productProperties.getChanges().getPollInterval());
+        taskRegistrar.addFixedDelayTask(this::prune, PRUNE_INTERVAL);
+    }
+
+    /**
+     * Answers at once when there are changes after {@code since}, otherwise as soon as some
+     * arrive, or with an empty page after {@code wait}. Without {@code since}, answers at once
+     * with the current position.
+     */
+    public DeferredResult<ProductChangesDTO> poll(Long since, Integer limit, Duration wait) {
+        Duration maxWait = productProperties.getChanges().getMaxWait();
+        Duration timeout = wait.compareTo(maxWait) > 0 ? maxWait : wait;
+        ProductChangesDTO changes = productService.getChanges(since, limit);
+        DeferredResult<ProductChangesDTO> result = new DeferredResult<>(timeout.toMillis(), changes);
+        if (since == null || !changes.getChanges().isEmpty() || timeout.isZero()) {
+            result.setResult(changes);
+            return result;
+        }
+        LongPoll longPoll = new LongPoll(since, limit, result);
+        longPolls.add(longPoll);
+        result.onCompletion(() -> longPolls.remove(longPoll));
+        return result;
+    }
+
+    /**
+     * Streams every page of changes after {@code since} as a {@value #EVENT_NAME} event whose id
+     * is the page's {@code nextSince}, so a reconnecting {@code EventSource} resumes where it stopped.
+     * Without {@code since}, streams the changes from now on.
+     */
+    public SseEmitter subscribe(Long since, Integer limit) {
+        // Fails with 410 before the stream is opened if the position was pruned.
+        ProductChangesDTO first = productService.getChanges(since, limit);
+        Stream stream = new Stream(new SseEmitter(productProperties.getChanges().getStreamTimeout().toMillis()),
+                first.getNextSince(), limit);
+        stream.emitter.onCompletion(stream::close);
+        stream.emitter.onTimeout(stream.emitter::complete);
+        stream.emitter.onError(ex -> stream.close());
+        if (!first.getChanges().isEmpty()) {
+            stream.enqueue(first);
+        }
+        streams.add(stream);
+        return stream.emitter;
+    }
+
+    void deliver() {
+        if (longPolls.isEmpty() && streams.isEmpty()) {
+            return;
+        }
+        long head;
+        try {
+            head = productService.getChanges(null, null).getNextSince();
+        } catch (RuntimeException ex) {
+            log.warn("Failed to read the product change feed head, will retry", ex);
+            return;
+        }
+        Map<String, ProductChangesDTO> pages = new HashMap<>();
+        for (LongPoll longPoll : longPolls) {
+            if (longPoll.since < head) {
+                try {
+                    ProductChangesDTO page = fetch(pages, longPoll.since, longPoll.limit);
+                    if (!page.getChanges().isEmpty()) {
+                        longPoll.result.setResult(page);
+                    }
+                } catch (RuntimeException ex) {
+                    longPoll.result.setErrorResult(ex);
+                }
+            }
+        }
+        long heartbeatNanos = productProperties.getChanges().getHeartbeatInterval().toNanos();
+        for (Stream stream : streams) {
+            try {
+                while (stream.open && stream.position < head) {
+                    ProductChangesDTO page = fetch(pages, stream.position, stream.limit);
+                    if (page.getChanges().isEmpty()) {
+                        break;
+                    }
+                    stream.enqueue(page);
+                }
+                if (stream.open && System.nanoTime() - stream.lastQueuedNanos > heartbeatNanos) {
+                    stream.heartbeat();
+                }
+            } catch (RuntimeException ex) {
+                // Typically a position pruned meanwhile; reconnecting gets the 410.
+                log.warn("Closing product change stream at {}: {}", stream.position, ex.getMessage());
+                stream.stop();
+            }
+        }
+    }
+
+    private ProductChangesDTO fetch(Map<String, ProductChangesDTO> pages, long since, Integer limit) {
+        return pages.computeIfAbsent(since + ":" + limit, key -> productService.getChanges(since, limit));
+    }
+
+    void prune() {
+        try {
+            long pruned = productChangeRepository.prune(productProperties.getChanges().getRetention());
+            if (pruned > 0) {
+                log.info("Pruned {} product changes", pruned);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Failed to prune product changes, will retry", ex);
+        }
+    }
+
+    private record LongPoll(long since, Integer limit, DeferredResult<ProductChangesDTO> result) {
+    }
+
+    /**
+     * One SSE client. {@link #position} and the enqueueing methods belong to the thread that runs
+     * {@link #deliver()}; the queue is drained by one sender at a time.
+     */
+    private final class Stream {
+        private final SseEmitter emitter;
+        private final Integer limit;
+        private final Queue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private long position;
+        private long lastQueuedNanos = System.nanoTime();
+        private volatile boolean open = true;
+        // Completed by the sender, so the scheduler never waits for a send in progress.
+        private volatile boolean completeWhenStopped;
+
+        private Stream(SseEmitter emitter, long position, Integer limit) {
+            this.emitter = emitter;
+            this.position = position;
+            this.limit = limit;
+            this.queue = new ArrayBlockingQueue<>(productProperties.getChanges().getMaxQueuedEvents());
+        }
+
+        void enqueue(ProductChangesDTO page) {
+            offer(SseEmitter.event().name(EVENT_NAME).id(Long.toString(page.getNextSince())).data(page));
+            position = page.getNextSince();
+        }
+
+        void heartbeat() {
+            offer(SseEmitter.event().comment("heartbeat"));
+        }
+
+        private void offer(SseEmitter.SseEventBuilder event) {
+            if (!open) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                log.warn("Closing product change stream at {}: the client fell behind", position);
+                stop();
+                return;
+            }
+            lastQueuedNanos = System.nanoTime();
+            send();
+        }
+
+        /**
+         * Ends the stream; the client reconnects from the last event it received.
+         */
+        void stop() {
+            completeWhenStopped = true;
+            close();
+            send();
+        }
+
+        private void send() {
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (open && (event = queue.poll()) != null) {
+                    emitter.send(event);
+                }
+                if (completeWhenStopped) {
+                    completeWhenStopped = false;
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException ex) {
+                // The client went away; the container completes the emitter.
+                completeWhenStopped = false;
+                close();
+            } finally {
+                sending.set(false);
+            }
+            if ((open && !queue.isEmpty() || completeWhenStopped) && sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void close() {
+            open = false;
+            streams.remove(this);
+            queue.clear();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.eva.test.changes;
+
+import com.eva.test.config.ProductProperties;
+import com.eva.test.dto.ProductChangeDTO;
+import com.eva.test.dto.ProductChangesDTO;
+import com.eva.test.event.ProductChangedEvent;
+import com.eva.test.exception.GoneException;
+import com.eva.test.service.ProductService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+/**
+ * Follows the product change feed and publishes every change in it as a
+ * {@link ProductChangedEvent}, so caches and indexes kept by this instance also learn about
+ * writes made through other instances, within {@code relay-interval}. Local writes come back
+ * this way too, later than their own events. Listeners only apply the current state, so
+ * handling a change twice is harmless, and a state overtaken by a local write is put right by
+ * the next run, which relays that write as well.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductChangeRelay implements SchedulingConfigurer {
+    private final ProductService productService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductProperties productProperties;
+
+    private Long position;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(this::relay, productProperties.getChanges().getRelayInterval());
+    }
+
+    void relay() {
+        try {
+            if (position == null) {
+                // Whatever was written before the start is read from the database anyway.
+                position = productService.getChanges(null, null).getNextSince();
+                return;
+            }
+            ProductChangesDTO page;
+            do {
+                page = productService.getChanges(position, null);
+                for (ProductChangeDTO change : page.getChanges()) {
+                    eventPublisher.publishEvent(change.isDeleted()
+                            ? ProductChangedEvent.deleted(change.getProductId())
+                            : ProductChangedEvent.saved(change.getProduct()));
+                }
+                position = page.getNextSince();
+            } while (!page.getChanges().isEmpty());
+        } catch (GoneException ex) {
+            // Only when the relay stalled for the whole retention period; the caches' TTL covers the gap.
+            log.warn("Product changes after {} were pruned, relaying from the head on", position);
+            position = null;
+        } catch (RuntimeException ex) {
+            log.warn("Failed to relay product changes after {}, will retry", position, ex);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.eva.test.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how long after JVM start the first {@code /products} request was answered, next to
+ * Boot's {@code application.started.time} and {@code application.ready.time}: the first request
+ * also pays for whatever was left to load lazily, like the MVC handler chain and Jackson's
+ * serializers.
+ */
+@Slf4j
+@Component
+public class FirstRequestTimer {
+    private final AtomicLong firstRequestMillis = new AtomicLong(-1);
+
+    public FirstRequestTimer(MeterRegistry meterRegistry) {
+        TimeGauge.builder("application.first.request.time", firstRequestMillis, TimeUnit.MILLISECONDS,
+                        millis -> millis.get() < 0 ? Double.NaN : millis.get())
+                .description("Time from JVM start until the first /products request was answered")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onRequestHandled(ServletRequestHandledEvent event) {
+        if (firstRequestMillis.get() < 0 && event.getRequestUrl().startsWith("/products")
+                && firstRequestMillis.compareAndSet(-1, ManagementFactory.getRuntimeMXBean().getUptime())) {
+            log.info("First request answered {} ms after JVM start", firstRequestMillis.get());
+        }
+    }
+}
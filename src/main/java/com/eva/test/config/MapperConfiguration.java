@@ -1,13 +0,0 @@
-package com.eva.test.config;
-
-import org.modelmapper.ModelMapper;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-
-@Configuration
-public class MapperConfiguration {
-    @Bean
-    public ModelMapper modelMapper() {
-        return new ModelMapper();
-    }
-}
@@ -0,0 +1,70 @@
+package com.eva.test.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Replaces Boot's Jackson converters with ones that time each response body they write, see
+ * {@link SerializationTimer}. They stay subclasses of Boot's so they take the defaults' places.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper,
+                                                                                   MeterRegistry meterRegistry) {
+        SerializationTimer timer = new SerializationTimer(meterRegistry);
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+                    throws IOException {
+                timer.time(object, outputMessage, buffered -> super.writeInternal(object, type, buffered));
+            }
+        };
+    }
+
+    /**
+     * Binary CBOR ({@code application/cbor}) for clients that ask for it, configured like the JSON mapper.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter mappingJackson2CborHttpMessageConverter(
+            Jackson2ObjectMapperBuilder objectMapperBuilder, MeterRegistry meterRegistry) {
+        SerializationTimer timer = new SerializationTimer(meterRegistry);
+        return new MappingJackson2CborHttpMessageConverter(objectMapperBuilder.factory(new CBORFactory()).build()) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+                    throws IOException {
+                timer.time(object, outputMessage, buffered -> super.writeInternal(object, type, buffered));
+            }
+        };
+    }
+
+    /**
+     * Binary Smile ({@code application/x-jackson-smile}) for clients that ask for it. Repeated field
+     * names are written once and back-referenced, which makes it the smallest format for lists.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter mappingJackson2SmileHttpMessageConverter(
+            Jackson2ObjectMapperBuilder objectMapperBuilder, MeterRegistry meterRegistry) {
+        SerializationTimer timer = new SerializationTimer(meterRegistry);
+        return new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.factory(new SmileFactory()).build()) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+                    throws IOException {
+                timer.time(object, outputMessage, buffered -> super.writeInternal(object, type, buffered));
+            }
+        };
+    }
+}
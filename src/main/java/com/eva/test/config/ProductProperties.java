@@ -0,0 +1,356 @@
+package com.eva.test.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "products")
+public class ProductProperties {
+
+    private Page page = new Page();
+    private Lookup lookup = new Lookup();
+    private Search search = new Search();
+    private Facets facets = new Facets();
+    private Batch batch = new Batch();
+    private Cache cache = new Cache();
+    private Stock stock = new Stock();
+    private DbGate dbGate = new DbGate();
+    private Replicas replicas = new Replicas();
+    private SqlProfiler sqlProfiler = new SqlProfiler();
+    private Changes changes = new Changes();
+    private Limiter limiter = new Limiter();
+
+    @Data
+    public static class Page {
+        /**
+         * Page size used when the client does not pass {@code limit}.
+         */
+        private int defaultLimit = 50;
+
+        /**
+         * Upper bound for {@code limit}; larger values are clamped.
+         */
+        private int maxLimit = 1000;
+    }
+
+    @Data
+    public static class Lookup {
+        /**
+         * Most ids a single multi-get may ask for; larger requests are rejected.
+         */
+        private int maxIds = 1000;
+    }
+
+    @Data
+    public static class Search {
+        /**
+         * Maximum number of products returned by a single search, best matches first.
+         */
+        private int maxResults = 100;
+
+        private InMemory inMemory = new InMemory();
+
+        private Coalescing coalescing = new Coalescing();
+    }
+
+    @Data
+    public static class InMemory {
+        /**
+         * Serve searches from an in-process n-gram index instead of PostgreSQL. The index is
+         * built when the application starts and follows every product write afterwards, those
+         * made through other instances within {@code products.changes.relay-interval}.
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Coalescing {
+        /**
+         * Let concurrent database searches with the same filters share one query.
+         */
+        private boolean enabled = true;
+
+        /**
+         * How long a finished search keeps answering the same filters; zero shares running
+         * queries only.
+         */
+        private Duration resultWindow = Duration.ZERO;
+
+        /**
+         * Most filter combinations tracked at once.
+         */
+        private long maximumSize = 10_000;
+    }
+
+    @Data
+    public static class Facets {
+        /**
+         * Ascending upper bounds of the price histogram buckets; prices below the first bound and
+         * at or above the last one get open-ended buckets of their own.
+         */
+        private List<Double> priceBuckets = List.of(10.0, 50.0, 100.0, 500.0, 1000.0);
+
+        /**
+         * Most bounds a client may pass in {@code priceBuckets}.
+         */
+        private int maxPriceBuckets = 50;
+    }
+
+    @Data
+    public static class Batch {
+        /**
+         * Rows written per transaction by the bulk import; statements inside a chunk are
+         * grouped by {@code hibernate.jdbc.batch_size}.
+         */
+        private int chunkSize = 1000;
+
+        /**
+         * Rows changed per statement and transaction by bulk updates and deletes by criteria;
+         * bounds how long their row locks are held.
+         */
+        private int criteriaChunkSize = 5000;
+    }
+
+    @Data
+    public static class Cache {
+        /**
+         * Serve {@code GET /products/{id}} from an in-process cache in front of the database.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of cached products; least valuable entries are evicted beyond it.
+         */
+        private long maximumSize = 10_000;
+
+        /**
+         * How long an entry may be served after it was loaded. Writes through other instances
+         * invalidate entries within {@code products.changes.relay-interval}; the TTL only bounds
+         * staleness when that relay is down.
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Stock {
+        private WriteBehind writeBehind = new WriteBehind();
+    }
+
+    @Data
+    public static class WriteBehind {
+        /**
+         * Accumulate stock adjustments in memory and write them in periodic batches instead of
+         * one UPDATE per request. Oversell is still refused, but deltas not yet flushed are
+         * lost if the process dies. Single instance only: each instance checks sales against its
+         * own view of the stock, so with several they would accept the same units and the flush
+         * would reject them after the clients were told they succeeded. Off by default, which
+         * keeps the conditional UPDATE per request.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Pause between two flushes of the accumulated deltas.
+         */
+        private Duration flushInterval = Duration.ofMillis(200);
+    }
+
+    @Data
+    public static class DbGate {
+        /**
+         * Bound concurrent connection checkouts to the Hikari pool size with a fair semaphore.
+         */
+        private boolean enabled = false;
+
+        /**
+         * How long a request waits for a permit before failing.
+         */
+        private Duration acquireTimeout = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Replicas {
+        /**
+         * Send read-only transactions to the replicas below and everything else to the primary.
+         * Reads fall back to the primary while no replica is healthy.
+         */
+        private boolean enabled = false;
+
+        /**
+         * JDBC URLs of the read replicas.
+         */
+        private List<String> urls = new ArrayList<>();
+
+        /**
+         * Login for the replicas; {@code spring.datasource.username} when not set.
+         */
+        private String username;
+
+        /**
+         * Password for the replicas; {@code spring.datasource.password} when not set.
+         */
+        private String password;
+
+        /**
+         * Connections per replica pool.
+         */
+        private int maximumPoolSize = 10;
+
+        /**
+         * How long a read waits for a replica connection before it goes to the primary instead.
+         */
+        private Duration connectionTimeout = Duration.ofSeconds(1);
+
+        /**
+         * Pause between two health checks of every replica.
+         */
+        private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+        /**
+         * A replica replaying further behind the primary than this is taken out of rotation.
+         */
+        private Duration maxLag = Duration.ofSeconds(10);
+
+        /**
+         * After a client's own write, its reads stay on the primary for this long; zero turns it off.
+         */
+        private Duration readYourWritesWindow = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class SqlProfiler {
+        /**
+         * Count statements and JDBC time per request, report them in a {@code Server-Timing} header
+         * and as {@code products.sql.statements}, and keep the slowest statements at
+         * {@code /actuator/sqlprofile}. Costs a proxy call per statement, so it stays on everywhere.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Also count the rows read per request. Proxies every result set and intercepts every
+         * {@code next()}: on in the {@code dev} profile only.
+         */
+        private boolean countRows = false;
+
+        /**
+         * Statements faster than this are not considered for the slow-query report.
+         */
+        private Duration slowThreshold = Duration.ofMillis(100);
+
+        /**
+         * How many of the slowest statements the report keeps.
+         */
+        private int topQueries = 20;
+
+        /**
+         * Slow statements older than this drop out of the report.
+         */
+        private Duration window = Duration.ofMinutes(15);
+
+        /**
+         * A request that runs the same query this many times is reported as a likely N+1.
+         */
+        private int repeatThreshold = 10;
+    }
+
+    @Data
+    public static class Changes {
+        /**
+         * How often waiting long-poll and SSE clients are checked for new changes.
+         */
+        private Duration pollInterval = Duration.ofMillis(500);
+
+        /**
+         * Longest a long-poll request may wait; an empty page is returned after it.
+         */
+        private Duration maxWait = Duration.ofSeconds(30);
+
+        /**
+         * How long an SSE stream stays open; clients reconnect with {@code Last-Event-ID}.
+         */
+        private Duration streamTimeout = Duration.ofMinutes(30);
+
+        /**
+         * Pause between two comments sent to idle SSE streams, which also detects gone clients.
+         */
+        private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+        /**
+         * How often writes made through other instances are passed on to this instance's caches
+         * and search index; bounds how long they serve a product written elsewhere.
+         */
+        private Duration relayInterval = Duration.ofSeconds(2);
+
+        /**
+         * Threads writing events to SSE clients, apart from the scheduler so slow clients only
+         * hold up each other.
+         */
+        private int senderThreads = 4;
+
+        /**
+         * Events an SSE client may have waiting to be sent; a client further behind is disconnected.
+         */
+        private int maxQueuedEvents = 32;
+
+        /**
+         * How long changes are kept; clients further behind have to download the catalog again.
+         */
+        private Duration retention = Duration.ofDays(7);
+    }
+
+    @Data
+    public static class Limiter {
+        /**
+         * Cap concurrent {@code /products} requests at a limit learned from their latency and
+         * answer the excess with 503 right away instead of queueing it.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Limit to start from, before any latency has been observed.
+         */
+        private int initialLimit = 20;
+
+        private int minLimit = 10;
+
+        private int maxLimit = 200;
+
+        /**
+         * Factor the limit is multiplied by when requests run slower than their target or time
+         * out; it grows back by one per limit's worth of fast requests.
+         */
+        private double backoffRatio = 0.9;
+
+        /**
+         * Sent as {@code Retry-After} with the 503s of shed requests and database timeouts.
+         */
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        private EndpointClassLimit reads = new EndpointClassLimit(0.3, Duration.ofMillis(500));
+
+        private EndpointClassLimit search = new EndpointClassLimit(0.2, Duration.ofMillis(500));
+
+        private EndpointClassLimit writes = new EndpointClassLimit(0.5, Duration.ofMillis(500));
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class EndpointClassLimit {
+        /**
+         * Fraction of the limit the class is admitted to even when the other classes have used
+         * up the rest. Beyond it the class borrows whatever the others leave unused.
+         */
+        private double share;
+
+        /**
+         * Requests slower than this count as a sign of an overloaded database.
+         */
+        private Duration latencyTarget;
+    }
+}
@@ -0,0 +1,68 @@
+package com.eva.test.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.util.FastByteArrayOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Records how long serializing a response body takes as {@code products.serialization}, tagged by
+ * the media type written and the body's type, whichever converter writes it. The body is
+ * serialized into a buffer and only copied to the response after the timer stopped, so a slow
+ * client's network does not count as serialization time.
+ */
+@RequiredArgsConstructor
+class SerializationTimer {
+    private final MeterRegistry meterRegistry;
+
+    void time(Object body, HttpOutputMessage outputMessage, BodyWriter writer) throws IOException {
+        FastByteArrayOutputStream buffer = new FastByteArrayOutputStream();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            writer.write(new BufferedOutputMessage(outputMessage.getHeaders(), buffer));
+        } finally {
+            sample.stop(Timer.builder("products.serialization")
+                    .description("Time to serialize a response body, without writing it to the client")
+                    .tag("media.type", mediaType(outputMessage))
+                    .tag("type", body.getClass().getSimpleName())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        buffer.writeTo(outputMessage.getBody());
+    }
+
+    /**
+     * Without parameters such as the charset, which would only split the same format over several timers.
+     */
+    private static String mediaType(HttpOutputMessage outputMessage) {
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+        return contentType == null ? "unknown" : contentType.getType() + "/" + contentType.getSubtype();
+    }
+
+    @FunctionalInterface
+    interface BodyWriter {
+        void write(HttpOutputMessage outputMessage) throws IOException;
+    }
+
+    @RequiredArgsConstructor
+    private static class BufferedOutputMessage implements HttpOutputMessage {
+        private final HttpHeaders headers;
+        private final OutputStream body;
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.eva.test.controller;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ContentNegotiationConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<VaryAcceptFilter> varyAcceptFilter() {
+        FilterRegistrationBean<VaryAcceptFilter> registration = new FilterRegistrationBean<>(new VaryAcceptFilter());
+        registration.addUrlPatterns("/products/*");
+        return registration;
+    }
+}
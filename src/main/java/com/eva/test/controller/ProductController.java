@@ -1,14 +1,42 @@
 package com.eva.test.controller;
 
+import com.eva.test.changes.ProductChangeFeed;
+import com.eva.test.dto.ProductBulkResultDTO;
+import com.eva.test.dto.ProductBulkUpdateDTO;
+import com.eva.test.dto.ProductChangesDTO;
 import com.eva.test.dto.ProductDTO;
+import com.eva.test.dto.ProductFacetsDTO;
+import com.eva.test.dto.ProductImportResultDTO;
+import com.eva.test.dto.ProductLookupDTO;
+import com.eva.test.dto.ProductPageDTO;
+import com.eva.test.dto.StockAdjustmentDTO;
+import com.eva.test.exception.BadRequestException;
+import com.eva.test.export.ExportFormat;
+import com.eva.test.export.ProductExportWriter;
 import com.eva.test.service.ProductService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequiredArgsConstructor
@@ -17,24 +45,103 @@ import java.util.List;
 @Tag(name = "Products", description = "Operations related to products")
 public class ProductController {
 
+    static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
     private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final ProductChangeFeed productChangeFeed;
 
     @GetMapping
-    @Operation(summary = "Get all products", description = "Fetch all products")
-    public List<ProductDTO> getAllProducts() {
-        log.info("Received request to get all products");
-        return productService.getAllProducts();
+    @Operation(summary = "Get all products",
+            description = "Fetch products page by page; pass the returned nextCursor as 'after' to get the next page. "
+                    + "Answers 304 when If-None-Match still matches the page's ETag. Besides JSON, pages can be "
+                    + "requested as application/cbor or application/x-jackson-smile")
+    public ResponseEntity<ProductPageDTO> getAllProducts(@RequestParam(required = false) Long after,
+                                                         @RequestParam(required = false) Integer limit,
+                                                         WebRequest request) {
+        log.info("Received request to get products after id: {}, limit: {}", after, limit);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && request.checkNotModified(ProductETags.forPage(productService.getAllProductVersions(after, limit)))) {
+            return null;
+        }
+        ProductPageDTO page = productService.getAllProducts(after, limit);
+        return ResponseEntity.ok().eTag(ProductETags.forPage(page)).body(page);
+    }
+
+    @GetMapping(params = "ids")
+    @Operation(summary = "Get products by IDs",
+            description = "Fetch many products in one request, in the order of 'ids'; ids without a product are "
+                    + "listed in missingIds instead of failing the request")
+    public ProductLookupDTO getProductsByIds(@RequestParam List<Long> ids) {
+        log.info("Received request to get {} products by id", ids.size());
+        return productService.getProductsByIds(ids);
+    }
+
+    @PostMapping("/lookup")
+    @Operation(summary = "Look up products by IDs",
+            description = "Same as GET /products?ids=... with the ids as a JSON array in the body, for lists "
+                    + "too long for a URL; reads only")
+    public ProductLookupDTO lookupProducts(@RequestBody List<Long> ids) {
+        log.info("Received request to look up {} products by id", ids.size());
+        return productService.getProductsByIds(ids);
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export all products",
+            description = "Stream the whole catalog as NDJSON (default) or CSV")
+    public void exportProducts(@RequestParam(defaultValue = "ndjson") String format,
+                               HttpServletResponse response) throws IOException {
+        log.info("Received request to export products as {}", format);
+        ExportFormat exportFormat = ExportFormat.fromParameter(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=products." + exportFormat.getFileExtension());
+        try (ProductExportWriter writer = exportFormat.open(response.getOutputStream(), objectMapper)) {
+            productService.exportProducts(writer::write);
+        }
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Get product changes",
+            description = "Products written after feed position 'since', each with its current state or as a "
+                    + "tombstone; pass the returned nextSince as 'since' to continue. Without 'since' only the "
+                    + "current position is returned. With 'wait' (seconds) the request is held until changes "
+                    + "arrive. Answers 410 when changes after 'since' were pruned")
+    public DeferredResult<ProductChangesDTO> getChanges(@RequestParam(required = false) Long since,
+                                                        @RequestParam(required = false) Integer limit,
+                                                        @RequestParam(required = false) Integer wait) {
+        log.info("Received request to get product changes since: {}, limit: {}, wait: {}", since, limit, wait);
+        return productChangeFeed.poll(since, limit, Duration.ofSeconds(wait == null ? 0 : Math.max(wait, 0)));
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream product changes",
+            description = "Server-Sent Events carrying every page of changes after 'since' or Last-Event-ID")
+    public SseEmitter streamChanges(@RequestParam(required = false) Long since,
+                                    @RequestParam(required = false) Integer limit,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        log.info("Received request to stream product changes since: {}, Last-Event-ID: {}", since, lastEventId);
+        return productChangeFeed.subscribe(lastEventId != null ? lastEventId : since, limit);
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Get product by ID", description = "Fetch a product by its ID")
-    public ProductDTO getProductById(@PathVariable Long id) {
+    @Operation(summary = "Get product by ID",
+            description = "Fetch a product by its ID; answers 304 when If-None-Match still matches its ETag")
+    public ResponseEntity<ProductDTO> getProductById(@PathVariable Long id, WebRequest request) {
         log.info("Received request to get product with id: {}", id);
-        return productService.getProductById(id);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            String eTag = ProductETags.forVersion(productService.getProductVersion(id));
+            if (eTag != null && request.checkNotModified(eTag)) {
+                return null;
+            }
+        }
+        return withETag(productService.getProductById(id));
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Search products", description = "Search for products by name and optionally by price range")
+    @Operation(summary = "Search products", description = "Search for products by name and optionally by price "
+            + "range; results can also be requested as application/cbor or application/x-jackson-smile")
     public List<ProductDTO> searchProducts(@RequestParam String name,
                                            @RequestParam(required = false) Double minPrice,
                                            @RequestParam(required = false) Double maxPrice) {
@@ -43,6 +150,19 @@ public class ProductController {
         return productService.searchProducts(name, minPrice, maxPrice);
     }
 
+    @GetMapping("/facets")
+    @Operation(summary = "Get catalog facets",
+            description = "Product counts and total stock per country and per price bucket, optionally scoped "
+                    + "by the search filters; priceBuckets overrides the configured histogram bounds")
+    public ProductFacetsDTO getFacets(@RequestParam(required = false) String name,
+                                      @RequestParam(required = false) Double minPrice,
+                                      @RequestParam(required = false) Double maxPrice,
+                                      @RequestParam(required = false) List<Double> priceBuckets) {
+        log.info("Received request to get facets with name: {}, minPrice: {}, maxPrice: {}, priceBuckets: {}",
+                name, minPrice, maxPrice, priceBuckets);
+        return productService.getFacets(name, minPrice, maxPrice, priceBuckets);
+    }
+
     @PostMapping
     @Operation(summary = "Add a new product", description = "Add a new product")
     public ProductDTO addProduct(@RequestBody ProductDTO productDTO) {
@@ -50,11 +170,78 @@ public class ProductController {
         return productService.saveProduct(productDTO);
     }
 
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Import products in bulk",
+            description = "Add many products from a JSON array or an NDJSON stream; rows are committed in chunks")
+    public ProductImportResultDTO importProducts(HttpServletRequest request) throws IOException {
+        log.info("Received request to import products");
+        try (MappingIterator<ProductDTO> productDTOs = objectMapper.readerFor(ProductDTO.class)
+                .readValues(request.getInputStream())) {
+            return new ProductImportResultDTO(productService.importProducts(productDTOs));
+        } catch (RuntimeException ex) {
+            // MappingIterator rethrows parse errors unchecked. Chunks read before the
+            // malformed row are already committed.
+            if (ex instanceof RuntimeJsonMappingException || ex.getCause() instanceof JsonProcessingException) {
+                throw new BadRequestException("Malformed product in import: " + ex.getMessage());
+            }
+            throw ex;
+        }
+    }
+
     @PutMapping("/{id}")
-    @Operation(summary = "Update a product", description = "Update an existing product")
-    public ProductDTO updateProduct(@PathVariable Long id, @RequestBody ProductDTO productDTO) {
+    @Operation(summary = "Update a product",
+            description = "Replace all fields of an existing product; with If-Match, only if it is still at that version")
+    public ResponseEntity<ProductDTO> updateProduct(@PathVariable Long id, @RequestBody ProductDTO productDTO,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                    String ifMatch) {
         log.info("Received request to update product with id: {}", id);
-        return productService.updateProduct(id, productDTO);
+        return withETag(productService.updateProduct(id, ProductETags.parseVersion(ifMatch), productDTO));
+    }
+
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Partially update a product",
+            description = "Apply a JSON merge patch; only the changed columns are written, and with If-Match "
+                    + "the update is a single statement that also checks the version")
+    public ResponseEntity<ProductDTO> patchProduct(@PathVariable Long id, @RequestBody Map<String, Object> patch,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                   String ifMatch) {
+        log.info("Received request to patch product with id: {}", id);
+        return withETag(productService.patchProduct(id, ProductETags.parseVersion(ifMatch), patch));
+    }
+
+    @PatchMapping("/bulk")
+    @Operation(summary = "Update products by criteria",
+            description = "Multiply the price and/or set the quantity of every product matching name, country "
+                    + "and price range (at least one is required); changed in chunks, each committed on its own")
+    public ProductBulkResultDTO updateProducts(@RequestParam(required = false) String name,
+                                               @RequestParam(required = false) String country,
+                                               @RequestParam(required = false) Double minPrice,
+                                               @RequestParam(required = false) Double maxPrice,
+                                               @RequestBody ProductBulkUpdateDTO update) {
+        log.info("Received request to update products with name: {}, country: {}, minPrice: {}, maxPrice: {}",
+                name, country, minPrice, maxPrice);
+        return new ProductBulkResultDTO(productService.updateProducts(name, country, minPrice, maxPrice, update));
+    }
+
+    @DeleteMapping("/bulk")
+    @Operation(summary = "Delete products by criteria",
+            description = "Delete every product matching name, country and price range (at least one is "
+                    + "required); deleted in chunks, each committed on its own")
+    public ProductBulkResultDTO deleteProducts(@RequestParam(required = false) String name,
+                                               @RequestParam(required = false) String country,
+                                               @RequestParam(required = false) Double minPrice,
+                                               @RequestParam(required = false) Double maxPrice) {
+        log.info("Received request to delete products with name: {}, country: {}, minPrice: {}, maxPrice: {}",
+                name, country, minPrice, maxPrice);
+        return new ProductBulkResultDTO(productService.deleteProducts(name, country, minPrice, maxPrice));
+    }
+
+    @PostMapping("/{id}/stock")
+    @Operation(summary = "Adjust product stock",
+            description = "Atomically add to or take from the quantity in stock; never goes below zero")
+    public void adjustStock(@PathVariable Long id, @RequestBody StockAdjustmentDTO stockAdjustmentDTO) {
+        log.info("Received request to adjust stock of product with id: {} by {}", id, stockAdjustmentDTO.getDelta());
+        productService.adjustStock(id, stockAdjustmentDTO.getDelta());
     }
 
     @DeleteMapping("/{id}")
@@ -63,4 +250,12 @@ public class ProductController {
         log.info("Received request to delete product with id: {}", id);
         productService.deleteProduct(id);
     }
-}
\ No newline at end of file
+
+    private static ResponseEntity<ProductDTO> withETag(ProductDTO productDTO) {
+        String eTag = ProductETags.forVersion(productDTO.getVersion());
+        if (eTag == null) {
+            return ResponseEntity.ok(productDTO);
+        }
+        return ResponseEntity.ok().eTag(eTag).body(productDTO);
+    }
+}
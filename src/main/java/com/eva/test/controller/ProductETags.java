@@ -0,0 +1,61 @@
+package com.eva.test.controller;
+
+import com.eva.test.dto.ProductDTO;
+import com.eva.test.dto.ProductPageDTO;
+import com.eva.test.exception.PreconditionFailedException;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ETags for product reads, derived from {@code Product.version} only so that
+ * {@code If-None-Match} can be checked without loading or serializing the products.
+ * They are weak: the JSON, CBOR and Smile encodings of one version share a tag, which a strong
+ * validator must not do, and Tomcat does not compress responses carrying a strong ETag.
+ */
+final class ProductETags {
+
+    private ProductETags() {
+    }
+
+    static String forVersion(Long version) {
+        return version == null ? null : "W/\"" + version + "\"";
+    }
+
+    /**
+     * The version named by an {@code If-Match} header, or {@code null} for none or {@code *}.
+     * Takes the tags of {@link #forVersion} although they are weak: {@code If-Match} only guards
+     * the version, whatever encoding the client read it in. The strong tags given out before are
+     * still accepted. Anything else, such as a page ETag, can never match a product and fails the
+     * precondition.
+     */
+    static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        if (eTag.startsWith("W/")) {
+            eTag = eTag.substring(2);
+        }
+        if (eTag.length() > 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+            try {
+                return Long.valueOf(eTag.substring(1, eTag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // Not one of ours; falls through to the failed precondition.
+            }
+        }
+        throw new PreconditionFailedException("If-Match does not name a product version: " + ifMatch);
+    }
+
+    /**
+     * Changes whenever a product on the page is added, removed or updated, or the next cursor moves.
+     */
+    static String forPage(ProductPageDTO page) {
+        StringBuilder marker = new StringBuilder();
+        for (ProductDTO product : page.getProducts()) {
+            marker.append(product.getId()).append(':').append(product.getVersion()).append(',');
+        }
+        marker.append(page.getNextCursor());
+        return "W/\"" + DigestUtils.md5DigestAsHex(marker.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
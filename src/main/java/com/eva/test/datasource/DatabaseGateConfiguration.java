@@ -0,0 +1,47 @@
+package com.eva.test.datasource;
+
+import com.eva.test.config.ProductProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts a {@link GatedDataSource} with one permit per pooled connection in front of the
+ * Hikari pool. Enabled by {@code products.db-gate.enabled}, which the
+ * {@code virtual-threads} profile turns on.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "products.db-gate", name = "enabled", havingValue = "true")
+public class DatabaseGateConfiguration {
+
+    @Bean
+    public static BeanPostProcessor databaseGatePostProcessor(Environment environment) {
+        // Bound by hand: post-processors are created before configuration properties beans.
+        ProductProperties.DbGate properties = Binder.get(environment)
+                .bind("products.db-gate", ProductProperties.DbGate.class)
+                .orElseGet(ProductProperties.DbGate::new);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // Unwrapped because other post-processors (SQL profiling) may have wrapped the pool already.
+                HikariDataSource hikariDataSource = bean instanceof DataSource dataSource
+                        ? DataSourceUnwrapper.unwrap(dataSource, HikariDataSource.class) : null;
+                if (hikariDataSource != null) {
+                    int permits = hikariDataSource.getMaximumPoolSize();
+                    log.info("Gating data source '{}' to {} concurrent connections", beanName, permits);
+                    return new GatedDataSource((DataSource) bean, permits, properties.getAcquireTimeout());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package com.eva.test.datasource;
+
+import com.eva.test.config.ProductProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connection pools of the read replicas, handed out round robin among the healthy ones. A
+ * replica leaves the rotation when it refuses a connection, fails a health check or replays
+ * too far behind the primary, and comes back with the next health check it passes. Until the
+ * first check has run no replica is considered healthy.
+ */
+@Slf4j
+public class ReplicaPool implements SchedulingConfigurer, AutoCloseable {
+    // Zero on a caught-up standby and on a server that is not a standby at all.
+    private static final String LAG_SQL = "SELECT CASE WHEN NOT pg_is_in_recovery() "
+            + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Duration healthCheckInterval;
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaPool(Map<String, DataSource> replicas, Duration healthCheckInterval, Duration maxLag) {
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+        this.healthCheckInterval = healthCheckInterval;
+        this.maxLag = maxLag;
+    }
+
+    /**
+     * One read-only Hikari pool per configured URL. Pools start without connecting, so a
+     * replica that is down at startup only keeps itself out of the rotation.
+     */
+    public static ReplicaPool create(ProductProperties.Replicas properties, String defaultUsername,
+                                     String defaultPassword) {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        for (String url : properties.getUrls()) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + (dataSources.size() + 1));
+            dataSource.setJdbcUrl(url);
+            dataSource.setUsername(properties.getUsername() != null ? properties.getUsername() : defaultUsername);
+            dataSource.setPassword(properties.getPassword() != null ? properties.getPassword() : defaultPassword);
+            dataSource.setMaximumPoolSize(properties.getMaximumPoolSize());
+            dataSource.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+            dataSource.setReadOnly(true);
+            dataSource.setInitializationFailTimeout(-1);
+            dataSources.put(url, dataSource);
+        }
+        return new ReplicaPool(dataSources, properties.getHealthCheckInterval(), properties.getMaxLag());
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(this::checkHealth, healthCheckInterval);
+    }
+
+    /**
+     * A connection from the next healthy replica, or {@code null} when none can give one.
+     */
+    public Connection getConnection() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy.get()) {
+                try {
+                    return replica.dataSource.getConnection();
+                } catch (SQLException ex) {
+                    markDown(replica, ex.getMessage());
+                }
+            }
+        }
+        return null;
+    }
+
+    public int healthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy.get()).count();
+    }
+
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(LAG_SQL)) {
+                resultSet.next();
+                Duration lag = Duration.ofMillis(Math.round(resultSet.getDouble(1) * 1000));
+                if (lag.compareTo(maxLag) > 0) {
+                    markDown(replica, "replaying " + lag.toMillis() + " ms behind the primary");
+                } else if (replica.healthy.compareAndSet(false, true)) {
+                    log.info("Replica '{}' is in rotation", replica.name);
+                }
+            } catch (SQLException ex) {
+                markDown(replica, ex.getMessage());
+            }
+        }
+    }
+
+    private void markDown(Replica replica, String reason) {
+        if (replica.healthy.compareAndSet(true, false)) {
+            log.warn("Replica '{}' taken out of rotation: {}", replica.name, reason);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private final AtomicBoolean healthy = new AtomicBoolean();
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.eva.test.datasource;
+
+import com.eva.test.config.ProductProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+/**
+ * Routes read-only transactions to the replicas of {@code products.replicas.urls} and everything
+ * else to the primary pool, and keeps clients on the primary right after their own writes.
+ * Enabled by {@code products.replicas.enabled}.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "products.replicas", name = "enabled", havingValue = "true")
+public class ReplicaRoutingConfiguration {
+
+    @Bean
+    public static ReplicaPool replicaPool(Environment environment) {
+        // Bound by hand: needed by a post-processor, which is created before configuration properties beans.
+        Binder binder = Binder.get(environment);
+        ProductProperties.Replicas properties = binder.bind("products.replicas", ProductProperties.Replicas.class)
+                .orElseGet(ProductProperties.Replicas::new);
+        return ReplicaPool.create(properties,
+                binder.bind("spring.datasource.username", String.class).orElse(null),
+                binder.bind("spring.datasource.password", String.class).orElse(null));
+    }
+
+    @Bean
+    public static BeanPostProcessor replicaRoutingPostProcessor(ObjectProvider<ReplicaPool> replicaPool) {
+        return new ReplicaRoutingPostProcessor(replicaPool);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ProductProperties productProperties) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(
+                new ReadYourWritesFilter(productProperties.getReplicas().getReadYourWritesWindow()));
+        registration.addUrlPatterns("/products/*");
+        registration.setEnabled(productProperties.getReplicas().getReadYourWritesWindow().isPositive());
+        return registration;
+    }
+
+    /**
+     * Ordered so it wraps the bare pool before the unordered post-processors (SQL profiling,
+     * database gate) wrap the result, and statements sent to the replicas are profiled too.
+     */
+    private static class ReplicaRoutingPostProcessor implements BeanPostProcessor, Ordered {
+        private final ObjectProvider<ReplicaPool> replicaPool;
+
+        ReplicaRoutingPostProcessor(ObjectProvider<ReplicaPool> replicaPool) {
+            this.replicaPool = replicaPool;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof HikariDataSource primary) {
+                log.info("Routing read-only transactions of data source '{}' to replicas", beanName);
+                return ReplicaRoutingDataSource.routing(primary, replicaPool.getObject());
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.eva.test.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * Where read-only connections come from: a healthy replica when there is one, otherwise the
+ * primary. Threads pinned with {@link #pinToPrimary} always get the primary.
+ * <p>
+ * Only sees read-only transactions when placed behind a {@link LazyConnectionDataSourceProxy}
+ * as its read-only data source (see {@link #routing}): the proxy defers the physical checkout
+ * until the transaction manager has marked the connection read-only.
+ */
+public class ReplicaRoutingDataSource extends DelegatingDataSource {
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private final ReplicaPool replicaPool;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaPool replicaPool) {
+        super(primary);
+        this.replicaPool = replicaPool;
+    }
+
+    /**
+     * Read-write routing in front of {@code primary}: read-only transactions are served by this
+     * class, all others by the primary.
+     */
+    public static LazyConnectionDataSourceProxy routing(DataSource primary, ReplicaPool replicaPool) {
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy();
+        routing.setTargetDataSource(primary);
+        routing.setReadOnlyDataSource(new ReplicaRoutingDataSource(primary, replicaPool));
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    /**
+     * Sends the current thread's reads to the primary until called with {@code false}.
+     */
+    public static void pinToPrimary(boolean pinned) {
+        if (pinned) {
+            PINNED_TO_PRIMARY.set(Boolean.TRUE);
+        } else {
+            PINNED_TO_PRIMARY.remove();
+        }
+    }
+
+    /**
+     * Runs {@code work} with the current thread's reads on the primary, then restores whatever
+     * pinning the thread had before.
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        boolean pinned = isPinnedToPrimary();
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            pinToPrimary(pinned);
+        }
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED_TO_PRIMARY.get() != null;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = PINNED_TO_PRIMARY.get() == null ? replicaPool.getConnection() : null;
+        return connection != null ? connection : readOnly(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Replica pools are logged in with their own credentials.
+        return readOnly(super.getConnection(username, password));
+    }
+
+    /**
+     * The proxy leaves the read-only flag to its read-only data source; the pool resets it on return.
+     */
+    private static Connection readOnly(Connection connection) throws SQLException {
+        try {
+            connection.setReadOnly(true);
+            return connection;
+        } catch (SQLException ex) {
+            connection.close();
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.eva.test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBulkResultDTO {
+    private long affected;
+}
@@ -0,0 +1,19 @@
+package com.eva.test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBulkUpdateDTO {
+    /**
+     * Factor every matching price is multiplied by, or {@code null} to leave prices alone.
+     */
+    private Double priceMultiplier;
+    /**
+     * Quantity in stock every matching product is set to, or {@code null} to leave it alone.
+     */
+    private Integer quantity;
+}
@@ -0,0 +1,24 @@
+package com.eva.test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangeDTO {
+    /**
+     * Feed position of the change; changes committed together share it.
+     */
+    private long seq;
+    private Long productId;
+    /**
+     * Tombstone: the product no longer exists.
+     */
+    private boolean deleted;
+    /**
+     * Current state of the product, or {@code null} for tombstones.
+     */
+    private ProductDTO product;
+}
@@ -0,0 +1,21 @@
+package com.eva.test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangesDTO {
+    /**
+     * Changed products oldest change first, each listed once with its latest state.
+     */
+    private List<ProductChangeDTO> changes;
+    /**
+     * Position to pass as {@code since} to get the changes after these.
+     */
+    private long nextSince;
+}
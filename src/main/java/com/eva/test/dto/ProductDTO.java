@@ -1,5 +1,6 @@
 package com.eva.test.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -10,9 +11,13 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProductDTO {
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long id;
     private String name;
     private String description;
     private String country;
     private double price;
     private int quantity;
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
 }
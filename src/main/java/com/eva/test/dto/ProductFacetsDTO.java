@@ -0,0 +1,46 @@
+package com.eva.test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetsDTO {
+    /**
+     * One entry per country, most products first; products without a country have a {@code null} country.
+     */
+    private List<CountryFacet> countries;
+    /**
+     * Every bucket of the histogram in price order, including empty ones.
+     */
+    private List<PriceBucket> priceBuckets;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CountryFacet {
+        private String country;
+        private long count;
+        private long totalStock;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceBucket {
+        /**
+         * Inclusive lower bound, or {@code null} for the first bucket.
+         */
+        private Double from;
+        /**
+         * Exclusive upper bound, or {@code null} for the last bucket.
+         */
+        private Double to;
+        private long count;
+        private long totalStock;
+    }
+}
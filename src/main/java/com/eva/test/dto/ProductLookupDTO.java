@@ -0,0 +1,21 @@
+package com.eva.test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductLookupDTO {
+    /**
+     * The products found, in the order their ids were asked for; repeated ids are listed once.
+     */
+    private List<ProductDTO> products;
+    /**
+     * The ids asked for that match no product, in the order they were asked for.
+     */
+    private List<Long> missingIds;
+}
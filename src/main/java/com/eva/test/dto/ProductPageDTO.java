@@ -0,0 +1,20 @@
+package com.eva.test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPageDTO {
+    private List<ProductDTO> products;
+    /**
+     * Id to pass as {@code after} to fetch the next page, or {@code null} on the last page.
+     */
+    private Long nextCursor;
+}
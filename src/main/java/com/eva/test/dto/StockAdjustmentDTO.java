@@ -0,0 +1,15 @@
+package com.eva.test.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAdjustmentDTO {
+    /**
+     * Amount to add to the quantity in stock; negative for sales.
+     */
+    private int delta;
+}
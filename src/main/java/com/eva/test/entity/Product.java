@@ -1,20 +1,44 @@
 package com.eva.test.entity;
 
+import com.eva.test.dto.ProductDTO;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 @Data
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@DynamicUpdate
 @Table(name = "products")
+@NamedNativeQuery(name = "Product.searchProducts",
+        query = "SELECT p.id, p.name, p.description, p.country, p.price, p.quantity, p.version FROM products p " +
+                "WHERE lower(p.name) LIKE '%' || lower(:name) || '%' " +
+                "AND p.price BETWEEN :minPrice AND :maxPrice " +
+                "ORDER BY similarity(lower(p.name), lower(:name)) DESC, p.id " +
+                "LIMIT :limit",
+        resultSetMapping = "ProductDTO")
+@NamedNativeQuery(name = "Product.findByIds",
+        query = "SELECT p.id, p.name, p.description, p.country, p.price, p.quantity, p.version FROM products p " +
+                "WHERE p.id = ANY(CAST(:ids AS bigint[]))",
+        resultSetMapping = "ProductDTO")
+@SqlResultSetMapping(name = "ProductDTO", classes = @ConstructorResult(targetClass = ProductDTO.class, columns = {
+        @ColumnResult(name = "id", type = Long.class),
+        @ColumnResult(name = "name", type = String.class),
+        @ColumnResult(name = "description", type = String.class),
+        @ColumnResult(name = "country", type = String.class),
+        @ColumnResult(name = "price", type = double.class),
+        @ColumnResult(name = "quantity", type = int.class),
+        @ColumnResult(name = "version", type = Long.class)
+}))
 public class Product {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -22,4 +46,7 @@ public class Product {
     private String country;
     private double price;
     private int quantity;
+
+    @Version
+    private Long version;
 }
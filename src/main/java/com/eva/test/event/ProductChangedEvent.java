@@ -0,0 +1,46 @@
+package com.eva.test.event;
+
+import com.eva.test.dto.ProductDTO;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Published by the product service whenever a product is written. Listeners that keep
+ * derived state (search index, caches) should consume it after commit.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class ProductChangedEvent {
+
+    public enum Type {
+        SAVED,
+        DELETED,
+        STOCK_ADJUSTED
+    }
+
+    private final Type type;
+    private final Long productId;
+    /**
+     * State of the product after the write; {@code null} for deletions.
+     */
+    private final ProductDTO product;
+    /**
+     * Change applied to the quantity in stock; only set for {@link Type#STOCK_ADJUSTED}.
+     */
+    private final int quantityDelta;
+
+    public static ProductChangedEvent saved(ProductDTO product) {
+        return new ProductChangedEvent(Type.SAVED, product.getId(), product, 0);
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(Type.DELETED, productId, null, 0);
+    }
+
+    public static ProductChangedEvent stockAdjusted(Long productId, int quantityDelta) {
+        return new ProductChangedEvent(Type.STOCK_ADJUSTED, productId, null, quantityDelta);
+    }
+}
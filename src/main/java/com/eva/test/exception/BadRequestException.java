@@ -0,0 +1,7 @@
+package com.eva.test.exception;
+
+public class BadRequestException extends RuntimeException {
+    public BadRequestException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,7 @@
+package com.eva.test.exception;
+
+public class GoneException extends RuntimeException {
+    public GoneException(String errorMessage) {
+        super(errorMessage);
+    }
+}
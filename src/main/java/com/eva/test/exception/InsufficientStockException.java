@@ -0,0 +1,7 @@
+package com.eva.test.exception;
+
+public class InsufficientStockException extends RuntimeException {
+    public InsufficientStockException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,7 @@
+package com.eva.test.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,65 @@
+package com.eva.test.export;
+
+import com.eva.test.dto.ProductDTO;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+class CsvProductExportWriter implements ProductExportWriter {
+    private static final String HEADER = "id,name,description,country,price,quantity";
+
+    private final Writer writer;
+
+    CsvProductExportWriter(OutputStream out) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(HEADER);
+        writer.write('\n');
+    }
+
+    @Override
+    public void write(ProductDTO product) {
+        try {
+            if (product.getId() != null) {
+                writer.write(product.getId().toString());
+            }
+            writer.write(',');
+            writeText(product.getName());
+            writer.write(',');
+            writeText(product.getDescription());
+            writer.write(',');
+            writeText(product.getCountry());
+            writer.write(',');
+            writer.write(Double.toString(product.getPrice()));
+            writer.write(',');
+            writer.write(Integer.toString(product.getQuantity()));
+            writer.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void writeText(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
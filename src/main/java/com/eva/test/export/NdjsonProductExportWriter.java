@@ -0,0 +1,39 @@
+package com.eva.test.export;
+
+import com.eva.test.dto.ProductDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+class NdjsonProductExportWriter implements ProductExportWriter {
+    private final JsonGenerator generator;
+    private final ObjectWriter objectWriter;
+
+    NdjsonProductExportWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(out);
+        // Jackson flushes after every value by default, which would send each row as its own
+        // (gzip-flushed) write; the generator's buffer goes out when full and on close instead.
+        this.objectWriter = objectMapper.writerFor(ProductDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Override
+    public void write(ProductDTO product) {
+        try {
+            objectWriter.writeValue(generator, product);
+            generator.writeRaw('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,14 @@
+package com.eva.test.export;
+
+import com.eva.test.dto.ProductDTO;
+
+import java.io.Closeable;
+
+/**
+ * Writes exported products to the response one row at a time. I/O failures
+ * (typically a client that went away) surface as {@link java.io.UncheckedIOException}
+ * so the writer can be used as a plain row sink.
+ */
+public interface ProductExportWriter extends Closeable {
+    void write(ProductDTO product);
+}
@@ -0,0 +1,144 @@
+package com.eva.test.limit;
+
+import com.eva.test.config.ProductProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit shared by all {@link EndpointClass endpoint classes}, adjusted by AIMD: it
+ * shrinks by {@code backoffRatio} when a request runs slower than its class's latency target or
+ * fails for lack of database capacity, and grows by one per limit's worth of fast requests while
+ * the limit is actually in use. Requests already in flight when the limit shrinks finish slow
+ * as well, so it shrinks at most once per such round.
+ * <p>
+ * Once the limit is reached, a class is still admitted up to its own share of the limit, so
+ * bulk reads cannot take the capacity writes rely on.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private final Map<EndpointClass, Partition> partitions = new EnumMap<>(EndpointClass.class);
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final LongSupplier nanoClock;
+
+    private double limit;
+    private int inFlight;
+    private long nextDecreaseNanos;
+
+    public AdaptiveConcurrencyLimiter(ProductProperties.Limiter properties) {
+        this(properties, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(ProductProperties.Limiter properties, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.nextDecreaseNanos = nanoClock.getAsLong();
+        this.minLimit = properties.getMinLimit();
+        this.maxLimit = properties.getMaxLimit();
+        this.backoffRatio = properties.getBackoffRatio();
+        this.limit = Math.clamp(properties.getInitialLimit(), minLimit, maxLimit);
+        partitions.put(EndpointClass.READS, new Partition(properties.getReads()));
+        partitions.put(EndpointClass.SEARCH, new Partition(properties.getSearch()));
+        partitions.put(EndpointClass.WRITES, new Partition(properties.getWrites()));
+    }
+
+    /**
+     * A permit to run a request of {@code endpointClass}, or {@code null} when it should be shed.
+     * Every permit must be given back through one of its methods.
+     */
+    public synchronized Permit tryAcquire(EndpointClass endpointClass) {
+        Partition partition = partitions.get(endpointClass);
+        if (inFlight >= (int) limit && partition.inFlight >= partition.guaranteedLimit()) {
+            return null;
+        }
+        inFlight++;
+        partition.inFlight++;
+        return new Permit(partition, nanoClock.getAsLong());
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight(EndpointClass endpointClass) {
+        return partitions.get(endpointClass).inFlight;
+    }
+
+    private synchronized void release(Partition partition, long latencyNanos, Outcome outcome) {
+        int load = inFlight;
+        inFlight--;
+        partition.inFlight--;
+        if (outcome == Outcome.IGNORED) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        if (outcome == Outcome.DROPPED || latencyNanos > partition.latencyTargetNanos) {
+            if (now - nextDecreaseNanos >= 0) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                nextDecreaseNanos = now + latencyNanos;
+            }
+        } else if (load * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    private enum Outcome {
+        SUCCEEDED, DROPPED, IGNORED
+    }
+
+    public final class Permit {
+        private final Partition partition;
+        private final long startNanos;
+        private boolean released;
+
+        private Permit(Partition partition, long startNanos) {
+            this.partition = partition;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * The request completed; its latency feeds the limit.
+         */
+        public void succeeded() {
+            release(Outcome.SUCCEEDED);
+        }
+
+        /**
+         * The request failed for lack of database capacity, such as a timeout.
+         */
+        public void dropped() {
+            release(Outcome.DROPPED);
+        }
+
+        /**
+         * The request is done but says nothing about the database, like a bulk export whose
+         * duration follows its size.
+         */
+        public void ignored() {
+            release(Outcome.IGNORED);
+        }
+
+        private void release(Outcome outcome) {
+            if (!released) {
+                released = true;
+                AdaptiveConcurrencyLimiter.this.release(partition, nanoClock.getAsLong() - startNanos, outcome);
+            }
+        }
+    }
+
+    private final class Partition {
+        private final double share;
+        private final long latencyTargetNanos;
+        private int inFlight;
+
+        private Partition(ProductProperties.EndpointClassLimit properties) {
+            this.share = properties.getShare();
+            this.latencyTargetNanos = properties.getLatencyTarget().toNanos();
+        }
+
+        private int guaranteedLimit() {
+            return Math.max(1, (int) Math.ceil(limit * share));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.eva.test.limit;
+
+import com.eva.test.config.ProductProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sheds {@code /products} requests beyond an adaptive concurrency limit. Enabled by
+ * {@code products.limiter.enabled}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "products.limiter", name = "enabled", havingValue = "true")
+public class ConcurrencyLimitConfiguration {
+
+    @Bean
+    public AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter(ProductProperties productProperties,
+                                                                 MeterRegistry meterRegistry) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(productProperties.getLimiter());
+        Gauge.builder("products.limiter.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Concurrent requests currently allowed")
+                .register(meterRegistry);
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            Gauge.builder("products.limiter.in.flight", limiter, l -> l.getInFlight(endpointClass))
+                    .description("Requests currently admitted by the concurrency limiter")
+                    .tag("class", endpointClass.tagValue())
+                    .register(meterRegistry);
+        }
+        return limiter;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter,
+                                                                                ObjectMapper objectMapper,
+                                                                                MeterRegistry meterRegistry,
+                                                                                ProductProperties productProperties) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(limiter, objectMapper, meterRegistry,
+                        productProperties.getLimiter().getRetryAfter()));
+        registration.addUrlPatterns("/products/*");
+        return registration;
+    }
+}
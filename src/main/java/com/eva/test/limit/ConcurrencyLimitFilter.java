@@ -0,0 +1,99 @@
+package com.eva.test.limit;
+
+import com.eva.test.exception.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Admits {@code /products} requests through the {@link AdaptiveConcurrencyLimiter} and answers the
+ * ones it sheds with 503 and {@code Retry-After}, before they take a thread for longer than it
+ * takes to say so. A 503 from further down, such as a database timeout, shrinks the limit.
+ */
+@RequiredArgsConstructor
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    // Held open while waiting for changes, without touching the database.
+    private static final String CHANGES_PATH = "/products/changes";
+    // Take as long as the data they move, whatever the database's health.
+    private static final Set<String> BULK_PATHS = Set.of("/products/export", "/products/batch", "/products/bulk");
+    private static final Set<String> SEARCH_PATHS = Set.of("/products/search", "/products/facets");
+    // POST only to carry a long list of ids.
+    private static final String LOOKUP_PATH = "/products/lookup";
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Duration retryAfter;
+
+    static EndpointClass classify(String method, String path) {
+        if (!SAFE_METHODS.contains(method) && !LOOKUP_PATH.equals(path)) {
+            return EndpointClass.WRITES;
+        }
+        return SEARCH_PATHS.contains(path) ? EndpointClass.SEARCH : EndpointClass.READS;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return path(request).startsWith(CHANGES_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = path(request);
+        EndpointClass endpointClass = classify(request.getMethod(), path);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire(endpointClass);
+        if (permit == null) {
+            rejected(endpointClass).increment();
+            shed(response);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException ex) {
+            permit.ignored();
+            throw ex;
+        } finally {
+            if (response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                permit.dropped();
+            } else if (BULK_PATHS.contains(path) || response.getStatus() >= 500) {
+                permit.ignored();
+            } else {
+                permit.succeeded();
+            }
+        }
+    }
+
+    private void shed(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, retryAfter.toSeconds())));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many requests in progress, retry later"));
+    }
+
+    private Counter rejected(EndpointClass endpointClass) {
+        return Counter.builder("products.limiter.rejected")
+                .description("Requests shed by the concurrency limiter")
+                .tag("class", endpointClass.tagValue())
+                .register(meterRegistry);
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
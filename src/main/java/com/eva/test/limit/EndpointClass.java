@@ -0,0 +1,15 @@
+package com.eva.test.limit;
+
+/**
+ * Endpoints grouped by how they load the database. Each class gets its own latency target and
+ * a share of the concurrency limit it can always count on.
+ */
+public enum EndpointClass {
+    READS,
+    SEARCH,
+    WRITES;
+
+    public String tagValue() {
+        return name().toLowerCase();
+    }
+}
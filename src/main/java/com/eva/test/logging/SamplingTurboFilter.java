@@ -0,0 +1,48 @@
+package com.eva.test.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import lombok.Setter;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Lets through only a random {@code rate} of the INFO-and-below events of the configured loggers
+ * (and their children), so per-request log lines and SQL echo cost a fraction of full volume.
+ * WARN and ERROR always pass. Runs before the event is even created, unlike an appender filter.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    @Setter
+    private double rate = 1.0;
+    private final List<String> loggers = new ArrayList<>();
+
+    public void addLogger(String logger) {
+        loggers.add(logger);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // Level checks such as isDebugEnabled() arrive without a format; only the log call itself
+        // is sampled, otherwise guarded calls would be sampled twice.
+        if (format == null || rate >= 1.0 || level.isGreaterOrEqual(Level.WARN) || !isSampled(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        return ThreadLocalRandom.current().nextDouble() < rate ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private boolean isSampled(String name) {
+        for (String logger : loggers) {
+            if (name.startsWith(logger)
+                    && (name.length() == logger.length() || name.charAt(logger.length()) == '.')) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,35 +2,46 @@ package com.eva.test.mapper;
 
 import com.eva.test.dto.ProductDTO;
 import com.eva.test.entity.Product;
-import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
+/**
+ * Field-by-field mapping between {@link Product} and {@link ProductDTO}. Written out by hand
+ * because list and search responses map every row, and this path allocates nothing beyond
+ * the target objects (see {@code ProductMapperBenchmark}). Only the list methods are timed:
+ * a single row maps in nanoseconds, less than recording a timer sample would take.
+ */
 @Component
-@RequiredArgsConstructor
 public class ProductMapper {
-    private final ModelMapper modelMapper;
 
     public ProductDTO toDto(Product product) {
-        return modelMapper.map(product, ProductDTO.class);
+        return new ProductDTO(product.getId(), product.getName(), product.getDescription(),
+                product.getCountry(), product.getPrice(), product.getQuantity(), product.getVersion());
     }
 
     public Product toEntity(ProductDTO productDTO) {
-        return modelMapper.map(productDTO, Product.class);
+        return new Product(productDTO.getId(), productDTO.getName(), productDTO.getDescription(),
+                productDTO.getCountry(), productDTO.getPrice(), productDTO.getQuantity(), productDTO.getVersion());
     }
 
+    @Timed(value = "products.mapper", description = "Time to map a list of products", histogram = true)
     public List<ProductDTO> toDtoList(List<Product> products) {
-        return products.stream()
-                .map(this::toDto)
-                .collect(Collectors.toList());
+        List<ProductDTO> productDTOs = new ArrayList<>(products.size());
+        for (Product product : products) {
+            productDTOs.add(toDto(product));
+        }
+        return productDTOs;
     }
 
+    @Timed(value = "products.mapper", description = "Time to map a list of products", histogram = true)
     public List<Product> toEntityList(List<ProductDTO> productDTOs) {
-        return productDTOs.stream()
-                .map(this::toEntity)
-                .collect(Collectors.toList());
+        List<Product> products = new ArrayList<>(productDTOs.size());
+        for (ProductDTO productDTO : productDTOs) {
+            products.add(toEntity(productDTO));
+        }
+        return products;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+package com.eva.test.profiling;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Times every statement executed through the target data source. Each statement goes to the
+ * {@link SlowQueryLog}. Inside a profiled request it is also added to the request's
+ * {@link SqlProfile}, together with the rows read from its result sets if the profile counts them.
+ */
+public class ProfilingDataSource extends DelegatingDataSource {
+    private static final ClassLoader CLASS_LOADER = ProfilingDataSource.class.getClassLoader();
+
+    private final SlowQueryLog slowQueryLog;
+
+    public ProfilingDataSource(DataSource targetDataSource, SlowQueryLog slowQueryLog) {
+        super(targetDataSource);
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return profiled(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return profiled(super.getConnection(username, password));
+    }
+
+    private Connection profiled(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    return switch (method.getName()) {
+                        case "createStatement" -> profiled(Statement.class, (Statement) result, null);
+                        case "prepareStatement" -> profiled(PreparedStatement.class, (Statement) result, (String) args[0]);
+                        case "prepareCall" -> profiled(CallableStatement.class, (Statement) result, (String) args[0]);
+                        default -> result;
+                    };
+                });
+    }
+
+    private Statement profiled(Class<? extends Statement> type, Statement statement, String preparedSql) {
+        return (Statement) Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (!method.getName().startsWith("execute")) {
+                        return counting(invoke(statement, method, args));
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        return counting(invoke(statement, method, args));
+                    } finally {
+                        record(sqlOf(preparedSql, args), System.nanoTime() - start);
+                    }
+                });
+    }
+
+    /**
+     * Wraps result sets read inside a request that counts rows so their rows are counted; anything
+     * else, and every other result set, is returned as is.
+     */
+    private Object counting(Object result) {
+        SqlProfile profile;
+        if (!(result instanceof ResultSet resultSet) || (profile = SqlProfile.current()) == null
+                || !profile.isCountingRows()) {
+            return result;
+        }
+        return Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    Object next = invoke(resultSet, method, args);
+                    if (Boolean.TRUE.equals(next) && "next".equals(method.getName())) {
+                        profile.recordRow();
+                    }
+                    return next;
+                });
+    }
+
+    private void record(String sql, long nanos) {
+        SqlProfile profile = SqlProfile.current();
+        if (profile != null) {
+            profile.recordStatement(sql, nanos);
+        }
+        slowQueryLog.record(sql, nanos);
+    }
+
+    private static String sqlOf(String preparedSql, Object[] args) {
+        if (preparedSql != null) {
+            return preparedSql;
+        }
+        return args != null && args.length > 0 && args[0] instanceof String sql ? sql : "<batch>";
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.eva.test.profiling;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The {@code topQueries} slowest statements of the last {@code window}, plus the most recent
+ * requests that ran one statement suspiciously often. Only statements slower than
+ * {@code slowThreshold} take the lock, so the fast path costs one comparison.
+ */
+public class SlowQueryLog {
+    private final long slowThresholdNanos;
+    private final int topQueries;
+    private final Duration window;
+    private final PriorityQueue<SlowQuery> slowest = new PriorityQueue<>(Comparator.comparingLong(SlowQuery::nanos));
+    private final Deque<RepeatedStatement> repeated = new ArrayDeque<>();
+
+    public SlowQueryLog(Duration slowThreshold, int topQueries, Duration window) {
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.topQueries = topQueries;
+        this.window = window;
+    }
+
+    public void record(String sql, long nanos) {
+        if (nanos < slowThresholdNanos) {
+            return;
+        }
+        SlowQuery slowQuery = new SlowQuery(sql, nanos, Instant.now());
+        synchronized (this) {
+            expire(slowQuery.at());
+            slowest.add(slowQuery);
+            if (slowest.size() > topQueries) {
+                slowest.poll();
+            }
+        }
+    }
+
+    public synchronized void recordRepeated(String request, String sql, int executions) {
+        repeated.addFirst(new RepeatedStatement(request, sql, executions, Instant.now()));
+        if (repeated.size() > topQueries) {
+            repeated.removeLast();
+        }
+    }
+
+    /**
+     * Slowest first.
+     */
+    public synchronized List<SlowQuery> slowest() {
+        expire(Instant.now());
+        List<SlowQuery> result = new ArrayList<>(slowest);
+        result.sort(Comparator.comparingLong(SlowQuery::nanos).reversed());
+        return result;
+    }
+
+    /**
+     * Most recent first.
+     */
+    public synchronized List<RepeatedStatement> repeated() {
+        return new ArrayList<>(repeated);
+    }
+
+    private void expire(Instant now) {
+        Instant oldest = now.minus(window);
+        slowest.removeIf(slowQuery -> slowQuery.at().isBefore(oldest));
+    }
+
+    public record SlowQuery(String sql, long nanos, Instant at) {
+    }
+
+    public record RepeatedStatement(String request, String sql, int executions, Instant at) {
+    }
+}
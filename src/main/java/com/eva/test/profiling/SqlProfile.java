@@ -0,0 +1,92 @@
+package com.eva.test.profiling;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statements, rows and JDBC time of one request. Bound to the request thread by
+ * {@link SqlProfilingFilter} and filled in by {@link ProfilingDataSource}; not thread-safe.
+ * Rows are only counted when {@link #isCountingRows()}, as that proxies every result set.
+ */
+@Getter
+public class SqlProfile {
+    private static final ThreadLocal<SqlProfile> CURRENT = new ThreadLocal<>();
+
+    private final boolean countingRows;
+    private int statements;
+    private long rows;
+    private long jdbcNanos;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Integer> executions = new HashMap<>();
+
+    private SqlProfile(boolean countingRows) {
+        this.countingRows = countingRows;
+    }
+
+    static SqlProfile start(boolean countRows) {
+        SqlProfile profile = new SqlProfile(countRows);
+        CURRENT.set(profile);
+        return profile;
+    }
+
+    static SqlProfile current() {
+        return CURRENT.get();
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    void recordStatement(String sql, long nanos) {
+        statements++;
+        jdbcNanos += nanos;
+        if (readsRows(sql)) {
+            executions.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    void recordRow() {
+        rows++;
+    }
+
+    /**
+     * The query reading table rows this request ran most often, or {@code null} if it ran none.
+     */
+    Map.Entry<String, Integer> mostRepeated() {
+        Map.Entry<String, Integer> mostRepeated = null;
+        for (Map.Entry<String, Integer> execution : executions.entrySet()) {
+            if (mostRepeated == null || execution.getValue() > mostRepeated.getValue()) {
+                mostRepeated = execution;
+            }
+        }
+        return mostRepeated;
+    }
+
+    /**
+     * Whether the statement reads table rows, as a lazy load does. Writes repeat their text by
+     * design in batches and chunked loops, and so do sequence calls, once per block of ids.
+     */
+    private static boolean readsRows(String sql) {
+        String statement = sql.stripLeading().toLowerCase(Locale.ROOT);
+        return statement.startsWith("select") && statement.contains(" from ");
+    }
+
+    /**
+     * {@code Server-Timing} value, e.g. {@code db;dur=3.1;desc="2 statements, 1 rows", total;dur=7.9},
+     * without the rows unless they are counted.
+     */
+    String serverTiming(long totalNanos) {
+        String desc = countingRows ? statements + " statements, " + rows + " rows" : statements + " statements";
+        return String.format(Locale.ROOT, "db;dur=%.1f;desc=\"%s\", total;dur=%.1f",
+                toMillis(jdbcNanos), desc, toMillis(totalNanos));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
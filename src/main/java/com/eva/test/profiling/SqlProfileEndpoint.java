@@ -0,0 +1,25 @@
+package com.eva.test.profiling;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the {@link SlowQueryLog} at {@code /actuator/sqlprofile}.
+ */
+@Endpoint(id = "sqlprofile")
+@RequiredArgsConstructor
+public class SqlProfileEndpoint {
+    private final SlowQueryLog slowQueryLog;
+
+    @ReadOperation
+    public Map<String, Object> report() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("slowQueries", slowQueryLog.slowest());
+        result.put("repeatedStatements", slowQueryLog.repeated());
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+package com.eva.test.profiling;
+
+import com.eva.test.config.ProductProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the data source in a {@link ProfilingDataSource} and profiles requests to
+ * {@code /products}. Enabled by {@code products.sql-profiler.enabled}.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "products.sql-profiler", name = "enabled", havingValue = "true")
+public class SqlProfilingConfiguration {
+
+    @Bean
+    public static SlowQueryLog slowQueryLog(Environment environment) {
+        // Bound by hand: needed by a post-processor, which is created before configuration properties beans.
+        ProductProperties.SqlProfiler properties = Binder.get(environment)
+                .bind("products.sql-profiler", ProductProperties.SqlProfiler.class)
+                .orElseGet(ProductProperties.SqlProfiler::new);
+        return new SlowQueryLog(properties.getSlowThreshold(), properties.getTopQueries(), properties.getWindow());
+    }
+
+    @Bean
+    public static BeanPostProcessor sqlProfilingPostProcessor(ObjectProvider<SlowQueryLog> slowQueryLog) {
+        // Looked up lazily so the log is not created while post-processors are still being registered.
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProfilingDataSource)) {
+                    log.info("Profiling SQL of data source '{}'", beanName);
+                    return new ProfilingDataSource(dataSource, slowQueryLog.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlProfilingFilter> sqlProfilingFilter(SlowQueryLog slowQueryLog,
+                                                                         MeterRegistry meterRegistry,
+                                                                         ProductProperties productProperties) {
+        FilterRegistrationBean<SqlProfilingFilter> registration = new FilterRegistrationBean<>(
+                new SqlProfilingFilter(slowQueryLog, meterRegistry,
+                        productProperties.getSqlProfiler().getRepeatThreshold(),
+                        productProperties.getSqlProfiler().isCountRows()));
+        registration.addUrlPatterns("/products/*");
+        return registration;
+    }
+
+    @Bean
+    public SqlProfileEndpoint sqlProfileEndpoint(SlowQueryLog slowQueryLog) {
+        return new SqlProfileEndpoint(slowQueryLog);
+    }
+}
@@ -0,0 +1,107 @@
+package com.eva.test.profiling;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+
+/**
+ * Profiles the SQL of each request: adds a {@code Server-Timing} header, records the statement
+ * count per endpoint as {@code products.sql.statements} and flags requests that run the same
+ * query {@code repeatThreshold} times or more, the usual sign of an N+1. Writes and sequence
+ * calls do not count: batched and chunked loops repeat them by design.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class SqlProfilingFilter extends OncePerRequestFilter {
+    static final String SERVER_TIMING = "Server-Timing";
+
+    private final SlowQueryLog slowQueryLog;
+    private final MeterRegistry meterRegistry;
+    private final int repeatThreshold;
+    private final boolean countRows;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlProfile profile = SqlProfile.start(countRows);
+        ServerTimingResponse timedResponse = new ServerTimingResponse(response, profile, System.nanoTime());
+        try {
+            filterChain.doFilter(request, timedResponse);
+            timedResponse.addServerTiming();
+        } finally {
+            SqlProfile.end();
+            report(request, profile);
+        }
+    }
+
+    private void report(HttpServletRequest request, SqlProfile profile) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("products.sql.statements")
+                .description("SQL statements executed per request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(profile.getStatements());
+        Map.Entry<String, Integer> mostRepeated = profile.mostRepeated();
+        if (mostRepeated != null && mostRepeated.getValue() >= repeatThreshold) {
+            String endpoint = request.getMethod() + " " + uri;
+            log.warn("Likely N+1 in {}: {} executions of {}", endpoint, mostRepeated.getValue(), mostRepeated.getKey());
+            slowQueryLog.recordRepeated(endpoint, mostRepeated.getKey(), mostRepeated.getValue());
+        }
+    }
+
+    /**
+     * Sets the header just before the body starts, while headers can still be changed. For
+     * streamed responses it therefore covers only the work done before streaming began.
+     */
+    private static class ServerTimingResponse extends HttpServletResponseWrapper {
+        private final SqlProfile profile;
+        private final long startNanos;
+        private boolean added;
+
+        ServerTimingResponse(HttpServletResponse response, SqlProfile profile, long startNanos) {
+            super(response);
+            this.profile = profile;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        void addServerTiming() {
+            if (!added && !isCommitted()) {
+                added = true;
+                setHeader(SERVER_TIMING, profile.serverTiming(System.nanoTime() - startNanos));
+            }
+        }
+    }
+}
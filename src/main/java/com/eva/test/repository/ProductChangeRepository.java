@@ -0,0 +1,87 @@
+package com.eva.test.repository;
+
+import com.eva.test.dto.ProductChangeDTO;
+import com.eva.test.dto.ProductDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Reads the {@code product_changes} log the database triggers write on every product insert,
+ * update and delete. Positions are transaction ids; only transactions older than every one still
+ * running are visible, so positions handed out never move backwards.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductChangeRepository {
+    private static final String SETTLED = "pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+    private static final String HEAD_SQL = "SELECT GREATEST((SELECT tx_id FROM product_changes_horizon), "
+            + "(SELECT max(tx_id) FROM product_changes WHERE tx_id < " + SETTLED + "))";
+
+    private static final String HORIZON_SQL = "SELECT tx_id FROM product_changes_horizon";
+
+    // Extends the first `limit` changes to the end of the last transaction among them: a
+    // transaction is never split across pages, so its position can serve as the cursor.
+    private static final String CHANGES_SQL = "WITH last_tx AS (SELECT max(tx_id) AS tx_id FROM ("
+            + "SELECT tx_id FROM product_changes WHERE tx_id > ? AND tx_id < " + SETTLED
+            + " ORDER BY tx_id, id LIMIT ?) first_changes) "
+            + "SELECT c.tx_id, c.product_id, c.deleted, p.id, p.name, p.description, p.country, p.price, "
+            + "p.quantity, p.version FROM product_changes c JOIN last_tx l ON c.tx_id <= l.tx_id "
+            + "LEFT JOIN products p ON p.id = c.product_id AND NOT c.deleted "
+            + "WHERE c.tx_id > ? ORDER BY c.tx_id, c.id";
+
+    // The log is ordered by transaction, which follows time closely enough: everything before
+    // the first transaction still inside the retention period goes.
+    private static final String PRUNE_SQL = "WITH pruned AS (DELETE FROM product_changes WHERE tx_id < COALESCE("
+            + "(SELECT tx_id FROM product_changes WHERE changed_at >= ? ORDER BY tx_id, id LIMIT 1), "
+            + SETTLED + ") RETURNING tx_id) "
+            + "UPDATE product_changes_horizon SET tx_id = GREATEST(tx_id, (SELECT max(tx_id) FROM pruned)) "
+            + "RETURNING (SELECT count(*) FROM pruned)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Position after every change visible so far.
+     */
+    public long head() {
+        return jdbcTemplate.queryForObject(HEAD_SQL, Long.class);
+    }
+
+    /**
+     * Oldest position a cursor may still point to.
+     */
+    public long horizon() {
+        return jdbcTemplate.queryForObject(HORIZON_SQL, Long.class);
+    }
+
+    /**
+     * Changes after {@code since} in commit order, at least {@code limit} of them when there are
+     * that many, and always whole transactions. Products are read at their current state.
+     */
+    public List<ProductChangeDTO> findChangesAfter(long since, int limit) {
+        return jdbcTemplate.query(CHANGES_SQL, (rs, rowNum) -> {
+            long productId = rs.getLong(2);
+            boolean exists = rs.getObject(4) != null;
+            ProductDTO product = exists ? new ProductDTO(rs.getLong(4), rs.getString(5), rs.getString(6),
+                    rs.getString(7), rs.getDouble(8), rs.getInt(9), rs.getLong(10)) : null;
+            // A product deleted since this change was written is reported as deleted right away.
+            return new ProductChangeDTO(rs.getLong(1), productId, !exists, product);
+        }, since, limit, since);
+    }
+
+    /**
+     * Deletes changes older than {@code retention} and moves the horizon past them.
+     *
+     * @return number of changes deleted
+     */
+    public long prune(Duration retention) {
+        return jdbcTemplate.queryForObject(PRUNE_SQL, Long.class,
+                Timestamp.from(Instant.now().minus(retention)));
+    }
+}
@@ -1,22 +1,80 @@
 package com.eva.test.repository;
 
+import com.eva.test.dto.ProductDTO;
 import com.eva.test.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
-
-    @Query("SELECT p FROM Product p WHERE " +
-            "LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) AND " +
-            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
-            "(:maxPrice IS NULL OR p.price <= :maxPrice)")
-    List<Product> searchProducts(@Param("name") String name,
-                                 @Param("minPrice") Double minPrice,
-                                 @Param("maxPrice") Double maxPrice);
-}
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductSearchRepository {
+
+    /**
+     * Selects straight into {@link ProductDTO}: read paths that only serialize the result skip
+     * entity hydration, the persistence context and {@code ProductMapper} altogether.
+     */
+    String SELECT_DTO = "SELECT new com.eva.test.dto.ProductDTO(" +
+            "p.id, p.name, p.description, p.country, p.price, p.quantity, p.version) ";
+
+    /**
+     * Keyset page over the primary key index: rows with {@code id > after} in id order.
+     */
+    @Query(SELECT_DTO + "FROM Product p WHERE p.id > :after ORDER BY p.id")
+    List<ProductDTO> findPageAfter(@Param("after") long after, Limit limit);
+
+    /**
+     * Streams the whole catalog through a server-side cursor. Must be consumed
+     * inside a transaction so the PostgreSQL driver honours the fetch size.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    Stream<Product> streamAll();
+
+    /**
+     * Same as {@link #streamAll()} but in price order, which lets price-sorted
+     * structures be filled by appending.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p ORDER BY p.price, p.id")
+    Stream<Product> streamAllOrderByPrice();
 
+    /**
+     * Adds {@code delta} to the stock in a single conditional statement, so concurrent
+     * adjustments neither lose updates nor drive the quantity below zero.
+     *
+     * @return 1 if applied, 0 if the product does not exist or has too little stock
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.quantity = p.quantity + :delta, p.version = p.version + 1 " +
+            "WHERE p.id = :id AND p.quantity + :delta >= 0")
+    int adjustStock(@Param("id") Long id, @Param("delta") int delta);
+
+    @Query("SELECT p.version FROM Product p WHERE p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * The {@code (id, version)} pairs of the keyset page {@link #findPageAfter} would return;
+     * enough to tell whether a client's copy of that page is still current.
+     */
+    @Query("SELECT p.id, p.version FROM Product p WHERE p.id > :after ORDER BY p.id")
+    List<Object[]> findPageVersionsAfter(@Param("after") long after, Limit limit);
+
+    @Query("SELECT p.quantity FROM Product p WHERE p.id = :id")
+    Optional<Integer> findQuantityById(@Param("id") Long id);
+}
@@ -0,0 +1,54 @@
+package com.eva.test.repository;
+
+import com.eva.test.dto.ProductDTO;
+
+import java.util.List;
+
+public interface ProductSearchRepository {
+
+    /**
+     * Case-insensitive substring search ranked by trigram similarity, projected into
+     * {@link ProductDTO} by the {@code Product.searchProducts} named native query. Written so
+     * that both predicates can be answered by {@code idx_products_name_trgm_price}; callers
+     * pass infinite bounds instead of {@code null} when a price filter is absent.
+     */
+    List<ProductDTO> searchProducts(String name, double minPrice, double maxPrice, int limit);
+
+    /**
+     * Product counts and total stock per country and per price bucket, in a single
+     * {@code GROUPING SETS} pass over the rows matching the same filters as
+     * {@link #searchProducts}; {@code name} may be {@code null} to match every product.
+     * Each row is {@code [byCountry, country, bucket, count, totalStock]}, country rows first,
+     * largest counts first. {@code bucket} is the {@code width_bucket} of the price over
+     * {@code priceBounds}: {@code 0} below the first bound, {@code priceBounds.length} at or
+     * above the last one.
+     */
+    List<Object[]> aggregateFacets(String name, double minPrice, double maxPrice, Double[] priceBounds);
+
+    /**
+     * The products among {@code ids}, in no particular order, through the {@code Product.findByIds}
+     * named native query. The ids are bound as one array, so the statement is the same for any
+     * number of them and PostgreSQL can keep reusing its plan, unlike an {@code IN} list.
+     */
+    List<ProductDTO> findAllByIds(Long[] ids);
+
+    /**
+     * Multiplies the price by {@code priceMultiplier} and sets the quantity to {@code quantity},
+     * each unless {@code null}, of the first {@code limit} products by id after {@code afterId}
+     * that match the same filters as {@link #searchProducts} plus {@code country}; {@code name}
+     * and {@code country} may be {@code null} to match every product. One statement, which locks
+     * the rows it picks and skips the ones a concurrent write made stop matching.
+     *
+     * @return the updated products, in no particular order; fewer than {@code limit} means no
+     * more products match
+     */
+    List<ProductDTO> updateMatching(String name, String country, double minPrice, double maxPrice,
+                                    long afterId, int limit, Double priceMultiplier, Integer quantity);
+
+    /**
+     * Deletes the products {@link #updateMatching} would update.
+     *
+     * @return the ids of the deleted products, in no particular order
+     */
+    List<Long> deleteMatching(String name, String country, double minPrice, double maxPrice, long afterId, int limit);
+}
@@ -0,0 +1,121 @@
+package com.eva.test.repository;
+
+import com.eva.test.dto.ProductDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.util.List;
+
+/**
+ * Native rather than JPQL because Hibernate renders JPQL {@code LIKE} with {@code ESCAPE ''},
+ * which PostgreSQL re-evaluates for every row it rechecks. Runs through the entity manager
+ * because Spring Data maps native queries returning a class as tuples and ignores the
+ * {@code ProductDTO} result set mapping.
+ */
+class ProductSearchRepositoryImpl implements ProductSearchRepository {
+
+    // The bucket is computed once in the derived table: two occurrences of :priceBounds would be
+    // two bind parameters, and PostgreSQL could not match the grouped expression to the selected one.
+    private static final String FACETS_SELECT = "SELECT GROUPING(f.country) = 0, f.country, f.bucket, " +
+            "count(*), COALESCE(sum(f.quantity), 0) FROM (" +
+            "SELECT p.country, p.quantity, width_bucket(p.price, CAST(:priceBounds AS float8[])) AS bucket " +
+            "FROM products p WHERE p.price BETWEEN :minPrice AND :maxPrice ";
+    private static final String FACETS_GROUP_BY = ") f GROUP BY GROUPING SETS ((f.country), (f.bucket)) " +
+            "ORDER BY 1 DESC, 4 DESC, 2";
+    // FOR UPDATE rechecks the filters of rows changed since the snapshot and keeps reading past
+    // the ones that no longer match, so a short chunk still means the end.
+    private static final String CHUNK_SELECT = "WITH chunk AS (SELECT p.id FROM products p " +
+            "WHERE p.id > :afterId AND p.price BETWEEN :minPrice AND :maxPrice ";
+    private static final String CHUNK_LIMIT = "ORDER BY p.id LIMIT :limit FOR UPDATE) ";
+    private static final String NAME_FILTER = "AND lower(p.name) LIKE '%' || lower(:name) || '%' ";
+    private static final String COUNTRY_FILTER = "AND p.country = :country ";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductDTO> searchProducts(String name, double minPrice, double maxPrice, int limit) {
+        return entityManager.createNamedQuery("Product.searchProducts", ProductDTO.class)
+                .setParameter("name", name)
+                .setParameter("minPrice", minPrice)
+                .setParameter("maxPrice", maxPrice)
+                .setParameter("limit", limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<ProductDTO> findAllByIds(Long[] ids) {
+        return entityManager.createNamedQuery("Product.findByIds", ProductDTO.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<ProductDTO> updateMatching(String name, String country, double minPrice, double maxPrice,
+                                           long afterId, int limit, Double priceMultiplier, Integer quantity) {
+        StringBuilder sql = new StringBuilder(chunk(name, country)).append("UPDATE products p SET ");
+        if (priceMultiplier != null) {
+            sql.append("price = p.price * :priceMultiplier, ");
+        }
+        if (quantity != null) {
+            sql.append("quantity = :quantity, ");
+        }
+        sql.append("version = p.version + 1 FROM chunk c WHERE p.id = c.id ")
+                .append("RETURNING p.id, p.name, p.description, p.country, p.price, p.quantity, p.version");
+        Query query = chunkQuery(entityManager.createNativeQuery(sql.toString(), "ProductDTO"),
+                name, country, minPrice, maxPrice, afterId, limit);
+        if (priceMultiplier != null) {
+            query.setParameter("priceMultiplier", priceMultiplier);
+        }
+        if (quantity != null) {
+            query.setParameter("quantity", quantity);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> deleteMatching(String name, String country, double minPrice, double maxPrice,
+                                     long afterId, int limit) {
+        String sql = chunk(name, country) + "DELETE FROM products p USING chunk c WHERE p.id = c.id RETURNING p.id";
+        return chunkQuery(entityManager.createNativeQuery(sql, Long.class),
+                name, country, minPrice, maxPrice, afterId, limit).getResultList();
+    }
+
+    private static String chunk(String name, String country) {
+        return CHUNK_SELECT + (name == null ? "" : NAME_FILTER) + (country == null ? "" : COUNTRY_FILTER)
+                + CHUNK_LIMIT;
+    }
+
+    private static Query chunkQuery(Query query, String name, String country, double minPrice, double maxPrice,
+                                    long afterId, int limit) {
+        query.setParameter("afterId", afterId)
+                .setParameter("minPrice", minPrice)
+                .setParameter("maxPrice", maxPrice)
+                .setParameter("limit", limit);
+        if (name != null) {
+            query.setParameter("name", name);
+        }
+        if (country != null) {
+            query.setParameter("country", country);
+        }
+        return query;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object[]> aggregateFacets(String name, double minPrice, double maxPrice, Double[] priceBounds) {
+        Query query = entityManager.createNativeQuery(name == null
+                ? FACETS_SELECT + FACETS_GROUP_BY
+                : FACETS_SELECT + NAME_FILTER + FACETS_GROUP_BY);
+        query.setParameter("minPrice", minPrice)
+                .setParameter("maxPrice", maxPrice)
+                .setParameter("priceBounds", priceBounds);
+        if (name != null) {
+            query.setParameter("name", name);
+        }
+        return query.getResultList();
+    }
+}
@@ -0,0 +1,153 @@
+package com.eva.test.search;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Document ids kept sorted by price in parallel primitive arrays, so that a price
+ * range maps to a contiguous slice found by binary search.
+ * <p>
+ * Shifting the arrays for every write would cost O(n), so writes are deferred: entries that
+ * do not belong at the end go to a small unsorted tail, and removed entries are only marked.
+ * Once either grows past about the square root of the size, the tail is sorted and merged in
+ * and the marked entries are dropped, which keeps writes at amortized O(&radic;n) and the
+ * extra work of a scan at the same bound. Appending in price order stays O(1).
+ */
+final class PostingList {
+    private static final int REMOVED = -1;
+    private static final int MIN_PENDING = 16;
+
+    private double[] prices = new double[4];
+    private int[] docs = new int[4];
+    private int sorted;
+    private int removed;
+    private double[] tailPrices = new double[MIN_PENDING];
+    private int[] tailDocs = new int[MIN_PENDING];
+    private int tail;
+
+    int size() {
+        return sorted - removed + tail;
+    }
+
+    void add(int doc, double price) {
+        if (tail == 0 && (sorted == 0 || prices[sorted - 1] <= price)) {
+            if (sorted == docs.length) {
+                prices = Arrays.copyOf(prices, sorted * 2);
+                docs = Arrays.copyOf(docs, sorted * 2);
+            }
+            prices[sorted] = price;
+            docs[sorted] = doc;
+            sorted++;
+            return;
+        }
+        if (tail == tailDocs.length) {
+            tailPrices = Arrays.copyOf(tailPrices, tail * 2);
+            tailDocs = Arrays.copyOf(tailDocs, tail * 2);
+        }
+        tailPrices[tail] = price;
+        tailDocs[tail] = doc;
+        tail++;
+        if (tail > maxPending()) {
+            merge();
+        }
+    }
+
+    boolean remove(int doc, double price) {
+        for (int i = 0; i < tail; i++) {
+            if (tailDocs[i] == doc) {
+                tail--;
+                tailPrices[i] = tailPrices[tail];
+                tailDocs[i] = tailDocs[tail];
+                return true;
+            }
+        }
+        for (int i = lowerBound(price); i < sorted && prices[i] == price; i++) {
+            if (docs[i] == doc) {
+                docs[i] = REMOVED;
+                removed++;
+                if (removed > maxPending()) {
+                    merge();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Passes every document priced within {@code [from, to]} to {@code action}, in no particular order.
+     */
+    void forEachInRange(double from, double to, IntConsumer action) {
+        for (int i = lowerBound(from); i < sorted && prices[i] <= to; i++) {
+            if (docs[i] != REMOVED) {
+                action.accept(docs[i]);
+            }
+        }
+        for (int i = 0; i < tail; i++) {
+            if (tailPrices[i] >= from && tailPrices[i] <= to) {
+                action.accept(tailDocs[i]);
+            }
+        }
+    }
+
+    private int maxPending() {
+        return Math.max(MIN_PENDING, (int) Math.sqrt(sorted));
+    }
+
+    /**
+     * Sorts the tail into the sorted entries and drops the removed ones, in one pass over both.
+     */
+    private void merge() {
+        // Insertion sort: the tail holds about the square root of the size, so this stays within O(n).
+        for (int i = 1; i < tail; i++) {
+            double price = tailPrices[i];
+            int doc = tailDocs[i];
+            int k = i;
+            for (; k > 0 && tailPrices[k - 1] > price; k--) {
+                tailPrices[k] = tailPrices[k - 1];
+                tailDocs[k] = tailDocs[k - 1];
+            }
+            tailPrices[k] = price;
+            tailDocs[k] = doc;
+        }
+        int capacity = Math.max(4, Integer.highestOneBit(Math.max(1, size())) * 2);
+        double[] mergedPrices = new double[capacity];
+        int[] mergedDocs = new int[capacity];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < sorted || j < tail) {
+            if (i < sorted && docs[i] == REMOVED) {
+                i++;
+            } else if (j == tail || i < sorted && prices[i] <= tailPrices[j]) {
+                mergedPrices[size] = prices[i];
+                mergedDocs[size++] = docs[i++];
+            } else {
+                mergedPrices[size] = tailPrices[j];
+                mergedDocs[size++] = tailDocs[j++];
+            }
+        }
+        prices = mergedPrices;
+        docs = mergedDocs;
+        sorted = size;
+        removed = 0;
+        tail = 0;
+    }
+
+    /**
+     * Index of the first sorted entry with {@code price >= value}.
+     */
+    private int lowerBound(double value) {
+        int low = 0;
+        int high = sorted;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
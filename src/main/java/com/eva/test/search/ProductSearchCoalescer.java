@@ -0,0 +1,121 @@
+package com.eva.test.search;
+
+import com.eva.test.config.ProductProperties;
+import com.eva.test.datasource.ReplicaRoutingDataSource;
+import com.eva.test.dto.ProductDTO;
+import com.eva.test.event.ProductChangedEvent;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Single flight for database searches: concurrent calls with the same filters share the query
+ * of whichever came first instead of each running their own. The first caller runs the query on
+ * its own thread, so followers hold no connection while they wait. With a result window, a
+ * finished result keeps answering the same filters for that long.
+ * <p>
+ * Any product write made through this instance forgets every shared query and result: searches
+ * issued after a write has committed never see results read before it. Writes made through
+ * other instances show up at the latest when the result window ends.
+ * <p>
+ * Callers whose reads are pinned to the primary only share queries with each other: a query
+ * started by an unpinned caller may run on a replica that has not replayed their write yet.
+ */
+@Component
+public class ProductSearchCoalescer {
+    private final boolean enabled;
+    private final boolean keepResults;
+    private final AsyncCache<SearchKey, Outcome> flights;
+    private final Counter executed;
+    private final Counter shared;
+
+    public ProductSearchCoalescer(ProductProperties productProperties, MeterRegistry meterRegistry) {
+        ProductProperties.Coalescing properties = productProperties.getSearch().getCoalescing();
+        Duration resultWindow = properties.getResultWindow();
+        this.enabled = properties.isEnabled();
+        this.keepResults = resultWindow.isPositive();
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(properties.getMaximumSize());
+        if (keepResults) {
+            // Caffeine starts the clock of an async entry when its future completes.
+            builder.expireAfterWrite(resultWindow);
+        }
+        this.flights = builder.buildAsync();
+        this.executed = counter(meterRegistry, "executed");
+        this.shared = counter(meterRegistry, "shared");
+    }
+
+    /**
+     * The result of {@code query}, run here unless a call with the same filters is already
+     * running it or, with a result window, ran it recently. The list is shared between callers
+     * and must not be modified.
+     */
+    public List<ProductDTO> search(String name, double minPrice, double maxPrice, Supplier<List<ProductDTO>> query) {
+        if (!enabled) {
+            return query.get();
+        }
+        SearchKey key = new SearchKey(name, minPrice, maxPrice, ReplicaRoutingDataSource.isPinnedToPrimary());
+        CompletableFuture<Outcome> flight = new CompletableFuture<>();
+        CompletableFuture<Outcome> running = flights.asMap().putIfAbsent(key, flight);
+        if (running != null) {
+            shared.increment();
+            return running.join().products();
+        }
+        executed.increment();
+        try {
+            List<ProductDTO> result = List.copyOf(query.get());
+            flight.complete(new Outcome(result, null));
+            return result;
+        } catch (RuntimeException | Error ex) {
+            // Completed normally because Caffeine logs every failed future as a warning; it is
+            // taken out first so the next call tries again.
+            flights.asMap().remove(key, flight);
+            flight.complete(new Outcome(null, ex));
+            throw ex;
+        } finally {
+            if (!keepResults) {
+                flights.asMap().remove(key, flight);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // Any product may enter or leave any result, so everything goes.
+        flights.synchronous().invalidateAll();
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("products.search.coalescing")
+                .description("Database searches by whether they ran a query or shared another's")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record SearchKey(String name, double minPrice, double maxPrice, boolean primary) {
+    }
+
+    private record Outcome(List<ProductDTO> result, Throwable failure) {
+
+        /**
+         * The shared result, or the first caller's failure rethrown as is so it maps to the same
+         * response.
+         */
+        List<ProductDTO> products() {
+            if (failure instanceof RuntimeException ex) {
+                throw ex;
+            }
+            if (failure instanceof Error error) {
+                throw error;
+            }
+            return result;
+        }
+    }
+}
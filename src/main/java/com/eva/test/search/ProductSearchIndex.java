@@ -0,0 +1,277 @@
+package com.eva.test.search;
+
+import com.eva.test.config.ProductProperties;
+import com.eva.test.dto.ProductDTO;
+import com.eva.test.event.ProductChangedEvent;
+import com.eva.test.mapper.ProductMapper;
+import com.eva.test.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process substring search over product names. Every name is broken into trigrams;
+ * each trigram points to a {@link PostingList} sorted by price. A query scans the price
+ * slice of its rarest trigram, confirms candidates against the full name and ranks them like
+ * {@code ProductRepository.searchProducts}: by pg_trgm similarity to the query, then by id.
+ * <p>
+ * Writes through other instances arrive through the change feed relay, possibly after a newer
+ * local write of the same product; a state older than the indexed version is ignored.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+    private static final int GRAM_SIZE = 3;
+
+    private final ProductProperties productProperties;
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> docsByProductId = new HashMap<>();
+    private final Map<String, PostingList> postingsByGram = new HashMap<>();
+    /**
+     * Every indexed document; used for queries shorter than a gram.
+     */
+    private final PostingList allDocs = new PostingList();
+    private ProductDTO[] products = new ProductDTO[1024];
+    private String[] lowerNames = new String[1024];
+    private int[] freeDocs = new int[16];
+    private int freeDocCount;
+    private int nextDoc;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        lock.writeLock().lock();
+        try {
+            transactionTemplate.executeWithoutResult(status -> productRepository.streamAllOrderByPrice()
+                    .forEach(product -> put(productMapper.toDto(product))));
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Built in-memory product search index with {} products in {} ms",
+                docsByProductId.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!isEnabled()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            switch (event.getType()) {
+                case SAVED -> put(event.getProduct());
+                case DELETED -> remove(event.getProductId());
+                case STOCK_ADJUSTED -> adjustQuantity(event.getProductId(), event.getQuantityDelta());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ProductDTO> search(String name, Double minPrice, Double maxPrice, int limit) {
+        String query = name.toLowerCase(Locale.ROOT);
+        Set<String> queryWordGrams = wordGrams(query);
+        double from = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+        double to = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+        // Worst match on top, so it is the one dropped once there are more than limit.
+        PriorityQueue<Match> best = new PriorityQueue<>(Comparator.comparing(Match::similarity)
+                .thenComparing(match -> match.product().getId(), Comparator.reverseOrder()));
+        lock.readLock().lock();
+        try {
+            PostingList postings = query.length() < GRAM_SIZE ? allDocs : rarestPostings(query);
+            if (postings == null) {
+                return new ArrayList<>();
+            }
+            postings.forEachInRange(from, to, doc -> {
+                if (lowerNames[doc].contains(query)) {
+                    best.add(new Match(products[doc], similarity(queryWordGrams, wordGrams(lowerNames[doc]))));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<ProductDTO> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().product());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private boolean isEnabled() {
+        return productProperties.getSearch().getInMemory().isEnabled();
+    }
+
+    private PostingList rarestPostings(String query) {
+        PostingList rarest = null;
+        for (int i = 0; i + GRAM_SIZE <= query.length(); i++) {
+            PostingList postings = postingsByGram.get(query.substring(i, i + GRAM_SIZE));
+            if (postings == null) {
+                return null;
+            }
+            if (rarest == null || postings.size() < rarest.size()) {
+                rarest = postings;
+            }
+        }
+        return rarest;
+    }
+
+    private void put(ProductDTO product) {
+        Integer indexed = docsByProductId.get(product.getId());
+        if (indexed != null && isOlder(product, products[indexed])) {
+            return;
+        }
+        remove(product.getId());
+        if (product.getName() == null) {
+            // Never matches a LIKE predicate, same as in the database.
+            return;
+        }
+        int doc = allocateDoc();
+        String lowerName = product.getName().toLowerCase(Locale.ROOT);
+        products[doc] = product;
+        lowerNames[doc] = lowerName;
+        docsByProductId.put(product.getId(), doc);
+        allDocs.add(doc, product.getPrice());
+        for (String gram : grams(lowerName)) {
+            postingsByGram.computeIfAbsent(gram, key -> new PostingList()).add(doc, product.getPrice());
+        }
+    }
+
+    private void adjustQuantity(Long productId, int delta) {
+        Integer doc = docsByProductId.get(productId);
+        if (doc == null) {
+            return;
+        }
+        // Indexed DTOs are handed out to callers, so replace rather than mutate.
+        ProductDTO current = products[doc];
+        products[doc] = new ProductDTO(current.getId(), current.getName(), current.getDescription(),
+                current.getCountry(), current.getPrice(), current.getQuantity() + delta,
+                current.getVersion() == null ? null : current.getVersion() + 1);
+    }
+
+    private void remove(Long productId) {
+        Integer doc = docsByProductId.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        double price = products[doc].getPrice();
+        allDocs.remove(doc, price);
+        for (String gram : grams(lowerNames[doc])) {
+            PostingList postings = postingsByGram.get(gram);
+            postings.remove(doc, price);
+            if (postings.size() == 0) {
+                postingsByGram.remove(gram);
+            }
+        }
+        products[doc] = null;
+        lowerNames[doc] = null;
+        if (freeDocCount == freeDocs.length) {
+            freeDocs = Arrays.copyOf(freeDocs, freeDocCount * 2);
+        }
+        freeDocs[freeDocCount++] = doc;
+    }
+
+    private int allocateDoc() {
+        if (freeDocCount > 0) {
+            return freeDocs[--freeDocCount];
+        }
+        if (nextDoc == products.length) {
+            products = Arrays.copyOf(products, nextDoc * 2);
+            lowerNames = Arrays.copyOf(lowerNames, nextDoc * 2);
+        }
+        return nextDoc++;
+    }
+
+    private static boolean isOlder(ProductDTO product, ProductDTO indexed) {
+        return product.getVersion() != null && indexed.getVersion() != null
+                && product.getVersion() < indexed.getVersion();
+    }
+
+    /**
+     * pg_trgm's {@code similarity}: shared trigrams over all distinct trigrams of the two strings,
+     * in single precision like the database's {@code real}, so ties break the same way.
+     */
+    static float similarity(Set<String> queryWordGrams, Set<String> nameWordGrams) {
+        if (queryWordGrams.isEmpty() || nameWordGrams.isEmpty()) {
+            return 0f;
+        }
+        int shared = 0;
+        for (String gram : queryWordGrams) {
+            if (nameWordGrams.contains(gram)) {
+                shared++;
+            }
+        }
+        return (float) shared / (queryWordGrams.size() + nameWordGrams.size() - shared);
+    }
+
+    /**
+     * Trigrams as pg_trgm extracts them: per run of letters and digits, padded with two spaces
+     * in front and one behind. Letters are Unicode letters, as in a database with a UTF-8
+     * {@code LC_CTYPE}; under the C locale PostgreSQL only counts ASCII ones.
+     */
+    static Set<String> wordGrams(String lowerText) {
+        Set<String> grams = new HashSet<>();
+        int start = -1;
+        for (int i = 0; i <= lowerText.length(); i++) {
+            boolean wordChar = i < lowerText.length() && Character.isLetterOrDigit(lowerText.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String padded = "  " + lowerText.substring(start, i) + " ";
+                for (int j = 0; j + GRAM_SIZE <= padded.length(); j++) {
+                    grams.add(padded.substring(j, j + GRAM_SIZE));
+                }
+                start = -1;
+            }
+        }
+        return grams;
+    }
+
+    private record Match(ProductDTO product, float similarity) {
+    }
+
+    private static Set<String> grams(String lowerName) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= lowerName.length(); i++) {
+            grams.add(lowerName.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+}
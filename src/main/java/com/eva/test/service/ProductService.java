@@ -1,15 +1,77 @@
 package com.eva.test.service;
 
+import com.eva.test.dto.ProductBulkUpdateDTO;
+import com.eva.test.dto.ProductChangesDTO;
 import com.eva.test.dto.ProductDTO;
-import com.eva.test.entity.Product;
+import com.eva.test.dto.ProductFacetsDTO;
+import com.eva.test.dto.ProductLookupDTO;
+import com.eva.test.dto.ProductPageDTO;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface ProductService {
-    List<ProductDTO> getAllProducts();
+    ProductPageDTO getAllProducts(Long after, Integer limit);
+    /**
+     * The page {@link #getAllProducts} would return, with only {@code id} and {@code version} filled in.
+     */
+    ProductPageDTO getAllProductVersions(Long after, Integer limit);
+    void exportProducts(Consumer<ProductDTO> sink);
     ProductDTO getProductById(Long id);
+    Long getProductVersion(Long id);
+    /**
+     * The products with the given ids in request order, taken from the cache where possible and
+     * otherwise from the database in a single query; ids without a product are reported rather
+     * than failing the lookup.
+     */
+    ProductLookupDTO getProductsByIds(List<Long> ids);
     List<ProductDTO> searchProducts(String name, Double minPrice, Double maxPrice);
+    /**
+     * Counts and total stock per country and per price bucket over the products matching the
+     * search filters; every filter is optional.
+     *
+     * @param priceBuckets ascending bucket bounds, or {@code null} for the configured ones
+     */
+    ProductFacetsDTO getFacets(String name, Double minPrice, Double maxPrice, List<Double> priceBuckets);
+    /**
+     * Products written after feed position {@code since}, oldest first, each with its current
+     * state or as a tombstone.
+     *
+     * @param since position from an earlier page, or {@code null} for the current position and no changes
+     * @throws com.eva.test.exception.GoneException if changes after {@code since} were already pruned
+     */
+    ProductChangesDTO getChanges(Long since, Integer limit);
     ProductDTO saveProduct(ProductDTO productDTO);
-    ProductDTO updateProduct(Long id, ProductDTO productDTO);
+    int importProducts(Iterator<ProductDTO> productDTOs);
+    /**
+     * Replaces all writable fields.
+     *
+     * @param expectedVersion version the client last saw, or {@code null} to update unconditionally
+     */
+    ProductDTO updateProduct(Long id, Long expectedVersion, ProductDTO productDTO);
+
+    /**
+     * Applies a JSON merge patch (RFC 7386): present properties are set, {@code null} clears them.
+     *
+     * @param expectedVersion version the client last saw, or {@code null} to update unconditionally
+     */
+    ProductDTO patchProduct(Long id, Long expectedVersion, Map<String, Object> patch);
+    void adjustStock(Long id, int delta);
     void deleteProduct(Long id);
+    /**
+     * Applies {@code update} to every product matching the search filters plus {@code country},
+     * at least one of which is required. Runs as one set-based statement per chunk of products,
+     * each in its own transaction: a failure leaves the chunks before it applied.
+     *
+     * @return the number of products updated
+     */
+    long updateProducts(String name, String country, Double minPrice, Double maxPrice, ProductBulkUpdateDTO update);
+    /**
+     * Deletes every product matching the same filters as {@link #updateProducts}, chunked the same way.
+     *
+     * @return the number of products deleted
+     */
+    long deleteProducts(String name, String country, Double minPrice, Double maxPrice);
 }
\ No newline at end of file
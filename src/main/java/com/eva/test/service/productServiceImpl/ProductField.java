@@ -0,0 +1,81 @@
+package com.eva.test.service.productServiceImpl;
+
+import com.eva.test.entity.Product;
+import com.eva.test.exception.BadRequestException;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The writable columns of {@link Product}. The JSON property and the column share one name.
+ */
+@Getter
+enum ProductField {
+    NAME(ProductField::requiredText, (product, value) -> product.setName((String) value)),
+    DESCRIPTION(ProductField::text, (product, value) -> product.setDescription((String) value)),
+    COUNTRY(ProductField::text, (product, value) -> product.setCountry((String) value)),
+    PRICE(ProductField::decimal, (product, value) -> product.setPrice((Double) value)),
+    QUANTITY(ProductField::integer, (product, value) -> product.setQuantity((Integer) value));
+
+    private final String column = name().toLowerCase(Locale.ROOT);
+    @Getter(AccessLevel.NONE)
+    private final Function<Object, Object> converter;
+    @Getter(AccessLevel.NONE)
+    private final BiConsumer<Product, Object> setter;
+
+    ProductField(Function<Object, Object> converter, BiConsumer<Product, Object> setter) {
+        this.converter = converter;
+        this.setter = setter;
+    }
+
+    static ProductField of(String property) {
+        for (ProductField field : values()) {
+            if (field.column.equals(property)) {
+                return field;
+            }
+        }
+        throw new BadRequestException("Unknown or read-only product field: " + property);
+    }
+
+    /**
+     * Checks a value decoded from JSON and converts it to the type of the entity field.
+     */
+    Object convert(Object value) {
+        return converter.apply(value);
+    }
+
+    void apply(Product product, Object value) {
+        setter.accept(product, value);
+    }
+
+    private static Object requiredText(Object value) {
+        if (!(value instanceof String text) || text.isBlank()) {
+            throw new BadRequestException("Expected a non-blank string but got: " + value);
+        }
+        return text;
+    }
+
+    private static Object text(Object value) {
+        if (value != null && !(value instanceof String)) {
+            throw new BadRequestException("Expected a string or null but got: " + value);
+        }
+        return value;
+    }
+
+    private static Object decimal(Object value) {
+        if (!(value instanceof Number number)) {
+            throw new BadRequestException("Expected a number but got: " + value);
+        }
+        return number.doubleValue();
+    }
+
+    private static Object integer(Object value) {
+        if (!(value instanceof Integer number)) {
+            throw new BadRequestException("Expected an integer but got: " + value);
+        }
+        return number;
+    }
+}
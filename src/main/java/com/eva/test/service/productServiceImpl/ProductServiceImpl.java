@@ -1,49 +1,262 @@
 package com.eva.test.service.productServiceImpl;
 
+import com.eva.test.cache.ProductCache;
+import com.eva.test.config.ProductProperties;
+import com.eva.test.datasource.ReplicaRoutingDataSource;
+import com.eva.test.dto.ProductBulkUpdateDTO;
+import com.eva.test.dto.ProductChangeDTO;
+import com.eva.test.dto.ProductChangesDTO;
 import com.eva.test.dto.ProductDTO;
+import com.eva.test.dto.ProductFacetsDTO;
+import com.eva.test.dto.ProductLookupDTO;
+import com.eva.test.dto.ProductPageDTO;
 import com.eva.test.entity.Product;
+import com.eva.test.event.ProductChangedEvent;
+import com.eva.test.exception.BadRequestException;
+import com.eva.test.exception.GoneException;
+import com.eva.test.exception.InsufficientStockException;
 import com.eva.test.exception.NotFoundException;
+import com.eva.test.exception.PreconditionFailedException;
 import com.eva.test.mapper.ProductMapper;
+import com.eva.test.repository.ProductChangeRepository;
 import com.eva.test.repository.ProductRepository;
+import com.eva.test.search.ProductSearchCoalescer;
+import com.eva.test.search.ProductSearchIndex;
 import com.eva.test.service.ProductService;
+import com.eva.test.stock.StockWriteBehindBuffer;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
+@Timed(value = "products.service", description = "Time spent in ProductService methods", histogram = true)
 public class ProductServiceImpl implements ProductService {
 
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
+    private final ProductProperties productProperties;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductSearchIndex productSearchIndex;
+    private final PlatformTransactionManager transactionManager;
+    private final ProductCache productCache;
+    private final StockWriteBehindBuffer stockWriteBehindBuffer;
+    private final ProductChangeRepository productChangeRepository;
+    private final ProductSearchCoalescer productSearchCoalescer;
 
     @Override
     @Transactional(readOnly = true)
-    public List<ProductDTO> getAllProducts() {
-        log.info("Fetching all products");
-        List<Product> products = productRepository.findAll();
-        return productMapper.toDtoList(products);
+    public ProductPageDTO getAllProducts(Long after, Integer limit) {
+        log.info("Fetching products after id: {}, limit: {}", after, limit);
+        int pageSize = resolvePageSize(limit);
+        // One extra row tells us whether a next page exists without a count query.
+        List<ProductDTO> products = productRepository.findPageAfter(after == null ? 0L : after,
+                Limit.of(pageSize + 1));
+        Long nextCursor = null;
+        if (products.size() > pageSize) {
+            products = products.subList(0, pageSize);
+            nextCursor = products.get(pageSize - 1).getId();
+        }
+        return new ProductPageDTO(products, nextCursor);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProductPageDTO getAllProductVersions(Long after, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        List<Object[]> versions = productRepository.findPageVersionsAfter(after == null ? 0L : after,
+                Limit.of(pageSize + 1));
+        Long nextCursor = null;
+        if (versions.size() > pageSize) {
+            versions = versions.subList(0, pageSize);
+            nextCursor = (Long) versions.get(pageSize - 1)[0];
+        }
+        List<ProductDTO> products = new ArrayList<>(versions.size());
+        for (Object[] row : versions) {
+            products.add(ProductDTO.builder().id((Long) row[0]).version((Long) row[1]).build());
+        }
+        return new ProductPageDTO(products, nextCursor);
     }
 
     @Override
     @Transactional(readOnly = true)
+    public void exportProducts(Consumer<ProductDTO> sink) {
+        log.info("Exporting all products");
+        try (Stream<Product> products = productRepository.streamAll()) {
+            products.forEach(product -> {
+                sink.accept(productMapper.toDto(product));
+                // Keep the persistence context from growing with every exported row.
+                entityManager.detach(product);
+            });
+        }
+    }
+
+    @Override
     public ProductDTO getProductById(Long id) {
         log.info("Fetching product with id: {}", id);
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Product not found with id: " + id));;
-        return productMapper.toDto(product);
+        // Not @Transactional: cache hits must not take a connection.
+        return productCache.get(id, this::loadProduct);
+    }
+
+    private ProductDTO loadProduct(Long id) {
+        return readForCache(status -> {
+            Product product = productRepository.findById(id)
+                    .orElseThrow(() -> new NotFoundException("Product not found with id: " + id));
+            return productMapper.toDto(product);
+        });
+    }
+
+    @Override
+    public Long getProductVersion(Long id) {
+        ProductDTO cached = productCache.getIfPresent(id);
+        if (cached != null) {
+            return cached.getVersion();
+        }
+        return readOnlyTransaction().execute(status -> productRepository.findVersionById(id)
+                .orElseThrow(() -> new NotFoundException("Product not found with id: " + id)));
+    }
+
+    @Override
+    public ProductLookupDTO getProductsByIds(List<Long> ids) {
+        log.info("Looking up {} products by id", ids.size());
+        int maxIds = productProperties.getLookup().getMaxIds();
+        if (ids.size() > maxIds) {
+            throw new BadRequestException("At most " + maxIds + " products can be looked up at once");
+        }
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        if (requested.contains(null)) {
+            throw new BadRequestException("Product ids must not be null");
+        }
+        // Not @Transactional: a lookup served entirely from the cache must not take a connection.
+        Map<Long, ProductDTO> found = new HashMap<>(productCache.getAllPresent(requested));
+        if (found.size() < requested.size()) {
+            Long[] misses = requested.stream().filter(id -> !found.containsKey(id)).toArray(Long[]::new);
+            long stamp = productCache.invalidationStamp();
+            List<ProductDTO> loaded = readForCache(status -> productRepository.findAllByIds(misses));
+            productCache.putAllIfUnchanged(stamp, loaded);
+            for (ProductDTO product : loaded) {
+                found.put(product.getId(), product);
+            }
+        }
+        List<ProductDTO> products = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : requested) {
+            ProductDTO product = found.get(id);
+            if (product != null) {
+                products.add(product);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new ProductLookupDTO(products, missingIds);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public List<ProductDTO> searchProducts(String name, Double minPrice, Double maxPrice) {
         log.info("Searching products with name: {}, minPrice: {}, maxPrice: {}", name, minPrice, maxPrice);
-        List<Product> products = productRepository.searchProducts(name, minPrice, maxPrice);
-        return productMapper.toDtoList(products);
+        int maxResults = productProperties.getSearch().getMaxResults();
+        if (productSearchIndex.isReady()) {
+            return productSearchIndex.search(name, minPrice, maxPrice, maxResults);
+        }
+        double from = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+        double to = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+        // Not @Transactional: neither the in-memory path above nor callers sharing another's
+        // query may take a connection.
+        return productSearchCoalescer.search(name, from, to, () -> readOnlyTransaction().execute(status ->
+                productRepository.searchProducts(name, from, to, maxResults)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProductFacetsDTO getFacets(String name, Double minPrice, Double maxPrice, List<Double> priceBuckets) {
+        log.info("Computing facets for name: {}, minPrice: {}, maxPrice: {}", name, minPrice, maxPrice);
+        Double[] priceBounds = resolvePriceBounds(priceBuckets);
+        List<Object[]> rows = productRepository.aggregateFacets(name == null || name.isBlank() ? null : name,
+                minPrice == null ? Double.NEGATIVE_INFINITY : minPrice,
+                maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice,
+                priceBounds);
+        List<ProductFacetsDTO.CountryFacet> countries = new ArrayList<>();
+        long[] bucketCounts = new long[priceBounds.length + 1];
+        long[] bucketStock = new long[priceBounds.length + 1];
+        for (Object[] row : rows) {
+            long count = ((Number) row[3]).longValue();
+            long totalStock = ((Number) row[4]).longValue();
+            if ((Boolean) row[0]) {
+                countries.add(new ProductFacetsDTO.CountryFacet((String) row[1], count, totalStock));
+            } else {
+                int bucket = ((Number) row[2]).intValue();
+                bucketCounts[bucket] = count;
+                bucketStock[bucket] = totalStock;
+            }
+        }
+        List<ProductFacetsDTO.PriceBucket> buckets = new ArrayList<>(bucketCounts.length);
+        for (int i = 0; i < bucketCounts.length; i++) {
+            buckets.add(new ProductFacetsDTO.PriceBucket(i == 0 ? null : priceBounds[i - 1],
+                    i == priceBounds.length ? null : priceBounds[i], bucketCounts[i], bucketStock[i]));
+        }
+        return new ProductFacetsDTO(countries, buckets);
+    }
+
+    private Double[] resolvePriceBounds(List<Double> priceBuckets) {
+        ProductProperties.Facets facets = productProperties.getFacets();
+        List<Double> bounds = priceBuckets == null || priceBuckets.isEmpty() ? facets.getPriceBuckets() : priceBuckets;
+        if (bounds.size() > facets.getMaxPriceBuckets()) {
+            throw new BadRequestException("At most " + facets.getMaxPriceBuckets() + " price buckets are allowed");
+        }
+        for (int i = 0; i < bounds.size(); i++) {
+            Double bound = bounds.get(i);
+            if (bound == null || !Double.isFinite(bound) || (i > 0 && bound <= bounds.get(i - 1))) {
+                throw new BadRequestException("Price buckets must be finite and strictly ascending: " + bounds);
+            }
+        }
+        return bounds.toArray(new Double[0]);
+    }
+
+    @Override
+    public ProductChangesDTO getChanges(Long since, Integer limit) {
+        return readOnlyTransaction().execute(status -> {
+            if (since == null) {
+                return new ProductChangesDTO(List.of(), productChangeRepository.head());
+            }
+            long horizon = productChangeRepository.horizon();
+            if (since < horizon) {
+                throw new GoneException("Changes before " + horizon
+                        + " are no longer kept; download the catalog again");
+            }
+            // Several changes to one product collapse into its latest state.
+            Map<Long, ProductChangeDTO> latest = new LinkedHashMap<>();
+            long nextSince = since;
+            for (ProductChangeDTO change : productChangeRepository.findChangesAfter(since, resolvePageSize(limit))) {
+                latest.remove(change.getProductId());
+                latest.put(change.getProductId(), change);
+                nextSince = change.getSeq();
+            }
+            return new ProductChangesDTO(new ArrayList<>(latest.values()), nextSince);
+        });
     }
 
     @Override
@@ -52,17 +265,139 @@ public class ProductServiceImpl implements ProductService {
         log.info("Saving product: {}", productDTO);
         Product product = productMapper.toEntity(productDTO);
         Product savedProduct = productRepository.save(product);
-        return productMapper.toDto(savedProduct);
+        ProductDTO savedProductDTO = productMapper.toDto(savedProduct);
+        eventPublisher.publishEvent(ProductChangedEvent.saved(savedProductDTO));
+        return savedProductDTO;
+    }
+
+    @Override
+    public int importProducts(Iterator<ProductDTO> productDTOs) {
+        int chunkSize = productProperties.getBatch().getChunkSize();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int imported = 0;
+        while (productDTOs.hasNext()) {
+            List<Product> chunk = new ArrayList<>(chunkSize);
+            while (chunk.size() < chunkSize && productDTOs.hasNext()) {
+                Product product = productMapper.toEntity(productDTOs.next());
+                product.setId(null);
+                chunk.add(product);
+            }
+            transactionTemplate.executeWithoutResult(status -> saveChunk(chunk));
+            imported += chunk.size();
+            log.debug("Imported {} products so far", imported);
+        }
+        log.info("Imported {} products", imported);
+        return imported;
+    }
+
+    private void saveChunk(List<Product> chunk) {
+        productRepository.saveAll(chunk);
+        entityManager.flush();
+        for (Product product : chunk) {
+            eventPublisher.publishEvent(ProductChangedEvent.saved(productMapper.toDto(product)));
+        }
+        // Each chunk starts from an empty persistence context.
+        entityManager.clear();
     }
 
     @Override
     @Transactional
-    public ProductDTO updateProduct(Long id, ProductDTO productDTO) {
+    public ProductDTO updateProduct(Long id, Long expectedVersion, ProductDTO productDTO) {
         log.info("Updating product with id: {}", id);
+        Map<ProductField, Object> changes = new EnumMap<>(ProductField.class);
+        changes.put(ProductField.NAME, productDTO.getName());
+        changes.put(ProductField.DESCRIPTION, productDTO.getDescription());
+        changes.put(ProductField.COUNTRY, productDTO.getCountry());
+        changes.put(ProductField.PRICE, productDTO.getPrice());
+        changes.put(ProductField.QUANTITY, productDTO.getQuantity());
+        changes.replaceAll(ProductField::convert);
+        return applyChanges(id, expectedVersion, changes);
+    }
+
+    @Override
+    @Transactional
+    public ProductDTO patchProduct(Long id, Long expectedVersion, Map<String, Object> patch) {
+        log.info("Patching fields {} of product with id: {}", patch.keySet(), id);
+        Map<ProductField, Object> changes = new EnumMap<>(ProductField.class);
+        patch.forEach((property, value) -> {
+            ProductField field = ProductField.of(property);
+            changes.put(field, field.convert(value));
+        });
+        return applyChanges(id, expectedVersion, changes);
+    }
+
+    private ProductDTO applyChanges(Long id, Long expectedVersion, Map<ProductField, Object> changes) {
+        Product product = expectedVersion != null && !changes.isEmpty()
+                ? updateIfVersionMatches(id, expectedVersion, changes)
+                : loadAndUpdate(id, expectedVersion, changes);
+        ProductDTO updatedProductDTO = productMapper.toDto(product);
+        eventPublisher.publishEvent(ProductChangedEvent.saved(updatedProductDTO));
+        return updatedProductDTO;
+    }
+
+    /**
+     * One round-trip: the client already told us which version it changed, so the UPDATE itself
+     * checks it and hands back the new row.
+     */
+    private Product updateIfVersionMatches(Long id, long expectedVersion, Map<ProductField, Object> changes) {
+        StringBuilder sql = new StringBuilder("UPDATE products SET ");
+        for (ProductField field : changes.keySet()) {
+            sql.append(field.getColumn()).append(" = :").append(field.getColumn()).append(", ");
+        }
+        sql.append("version = version + 1 WHERE id = :id AND version = :version RETURNING *");
+        Query query = entityManager.createNativeQuery(sql.toString(), Product.class)
+                .setParameter("id", id)
+                .setParameter("version", expectedVersion);
+        changes.forEach((field, value) -> query.setParameter(field.getColumn(), value));
+        List<?> updated = query.getResultList();
+        if (updated.isEmpty()) {
+            throw versionMismatch(id, productRepository.existsById(id));
+        }
+        return (Product) updated.get(0);
+    }
+
+    /**
+     * Without a version to check against, load the row; {@code @DynamicUpdate} limits the UPDATE
+     * to the columns whose values actually changed, and skips it if none did.
+     */
+    private Product loadAndUpdate(Long id, Long expectedVersion, Map<ProductField, Object> changes) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Product not found with id: " + id));
-        Product updatedProduct = productRepository.save(product);
-        return productMapper.toDto(updatedProduct);
+        if (expectedVersion != null && !expectedVersion.equals(product.getVersion())) {
+            throw versionMismatch(id, true);
+        }
+        changes.forEach((field, value) -> field.apply(product, value));
+        // Flush now so the returned DTO carries the incremented version.
+        entityManager.flush();
+        return product;
+    }
+
+    private RuntimeException versionMismatch(Long id, boolean exists) {
+        if (!exists) {
+            return new NotFoundException("Product not found with id: " + id);
+        }
+        return new PreconditionFailedException("Product with id: " + id + " was changed by someone else");
+    }
+
+    @Override
+    public void adjustStock(Long id, int delta) {
+        log.info("Adjusting stock of product with id: {} by {}", id, delta);
+        if (delta == 0) {
+            throw new BadRequestException("Stock adjustment must not be zero");
+        }
+        if (stockWriteBehindBuffer.isEnabled()) {
+            stockWriteBehindBuffer.adjust(id, delta);
+            return;
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (productRepository.adjustStock(id, delta) == 0) {
+                if (!productRepository.existsById(id)) {
+                    throw new NotFoundException("Product not found with id: " + id);
+                }
+                throw new InsufficientStockException("Not enough stock for product with id: " + id);
+            }
+            eventPublisher.publishEvent(ProductChangedEvent.stockAdjusted(id, delta));
+        });
     }
 
     @Override
@@ -73,5 +408,115 @@ public class ProductServiceImpl implements ProductService {
             throw new NotFoundException("Product not found with id: " + id);
         }
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
+    }
+
+    @Override
+    public long updateProducts(String name, String country, Double minPrice, Double maxPrice,
+                               ProductBulkUpdateDTO update) {
+        log.info("Updating products with name: {}, country: {}, minPrice: {}, maxPrice: {} by {}",
+                name, country, minPrice, maxPrice, update);
+        requireCriteria(name, country, minPrice, maxPrice);
+        Double priceMultiplier = update.getPriceMultiplier();
+        Integer quantity = update.getQuantity();
+        if (priceMultiplier == null && quantity == null) {
+            throw new BadRequestException("Either priceMultiplier or quantity is required");
+        }
+        if (priceMultiplier != null && !(Double.isFinite(priceMultiplier) && priceMultiplier > 0)) {
+            throw new BadRequestException("Price multiplier must be positive: " + priceMultiplier);
+        }
+        if (quantity != null && quantity < 0) {
+            throw new BadRequestException("Quantity must not be negative: " + quantity);
+        }
+        int chunkSize = productProperties.getBatch().getCriteriaChunkSize();
+        long updated = inChunks(chunkSize, afterId -> {
+            List<ProductDTO> products = productRepository.updateMatching(blankToNull(name), blankToNull(country),
+                    minPrice == null ? Double.NEGATIVE_INFINITY : minPrice,
+                    maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice,
+                    afterId, chunkSize, priceMultiplier, quantity);
+            List<Long> ids = new ArrayList<>(products.size());
+            for (ProductDTO product : products) {
+                eventPublisher.publishEvent(ProductChangedEvent.saved(product));
+                ids.add(product.getId());
+            }
+            return ids;
+        });
+        log.info("Updated {} products", updated);
+        return updated;
+    }
+
+    @Override
+    public long deleteProducts(String name, String country, Double minPrice, Double maxPrice) {
+        log.info("Deleting products with name: {}, country: {}, minPrice: {}, maxPrice: {}",
+                name, country, minPrice, maxPrice);
+        requireCriteria(name, country, minPrice, maxPrice);
+        int chunkSize = productProperties.getBatch().getCriteriaChunkSize();
+        long deleted = inChunks(chunkSize, afterId -> {
+            List<Long> ids = productRepository.deleteMatching(blankToNull(name), blankToNull(country),
+                    minPrice == null ? Double.NEGATIVE_INFINITY : minPrice,
+                    maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice,
+                    afterId, chunkSize);
+            ids.forEach(id -> eventPublisher.publishEvent(ProductChangedEvent.deleted(id)));
+            return ids;
+        });
+        log.info("Deleted {} products", deleted);
+        return deleted;
+    }
+
+    /**
+     * Runs {@code chunk} in a transaction of its own, from the start of the id range onwards,
+     * until it changes fewer than {@code chunkSize} products. Short transactions keep rows
+     * locked briefly; the keyset never goes back, so no product is changed twice.
+     *
+     * @param chunk changes the next chunk of products after the given id and returns their ids
+     * @return the number of products changed
+     */
+    private long inChunks(int chunkSize, LongFunction<List<Long>> chunk) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long changed = 0;
+        long afterId = 0L;
+        while (true) {
+            long from = afterId;
+            List<Long> ids = transactionTemplate.execute(status -> chunk.apply(from));
+            changed += ids.size();
+            if (ids.size() < chunkSize) {
+                return changed;
+            }
+            afterId = ids.stream().mapToLong(Long::longValue).max().getAsLong();
+            log.debug("Changed {} products so far", changed);
+        }
+    }
+
+    private static void requireCriteria(String name, String country, Double minPrice, Double maxPrice) {
+        // Nothing to go by would change the whole catalog, which is never what a typo meant.
+        if (blankToNull(name) == null && blankToNull(country) == null && minPrice == null && maxPrice == null) {
+            throw new BadRequestException("At least one of name, country, minPrice or maxPrice is required");
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    /**
+     * Reads whose results fill the product cache, which every client is served from for its TTL:
+     * on the primary, since a replica may not have replayed the write that just invalidated them.
+     */
+    private <T> T readForCache(TransactionCallback<T> action) {
+        return ReplicaRoutingDataSource.onPrimary(() -> readOnlyTransaction().execute(action));
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate;
+    }
+
+    private int resolvePageSize(Integer limit) {
+        ProductProperties.Page page = productProperties.getPage();
+        if (limit == null || limit <= 0) {
+            return page.getDefaultLimit();
+        }
+        return Math.min(limit, page.getMaxLimit());
     }
 }
\ No newline at end of file
@@ -0,0 +1,219 @@
+package com.eva.test.stock;
+
+import com.eva.test.config.ProductProperties;
+import com.eva.test.event.ProductChangedEvent;
+import com.eva.test.exception.InsufficientStockException;
+import com.eva.test.exception.NotFoundException;
+import com.eva.test.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind mode of the stock adjustment API. Each request is checked against an
+ * in-memory view of the available stock and its delta is added to a striped counter; a
+ * scheduled flush writes the summed delta of every touched product in one JDBC batch.
+ * <p>
+ * The available view is the database quantity plus deltas not yet committed: a flushing delta
+ * only leaves the pending sum once its batch has committed, and views are not reloaded in
+ * between, so a view never overstates the stock and sales beyond it are refused just like in
+ * direct mode.
+ * <p>
+ * Increments and decrements are summed and written separately, increments first, so a rejected
+ * write never takes restocks down with it. Unlike direct mode, accepted decrements can still be
+ * rejected at flush time when the product was deleted or its stock lowered by a write outside
+ * this buffer. Their clients were already answered with success; such rejections are counted in
+ * {@code products.stock.write-behind.rejected} and logged as errors for reconciliation.
+ * <p>
+ * Only for a single instance: the view is per process, so several instances would sell the same
+ * units and leave all but the first flush to be rejected.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StockWriteBehindBuffer implements SchedulingConfigurer {
+    private static final String FLUSH_SQL =
+            "UPDATE products SET quantity = quantity + ?, version = version + 1 WHERE id = ? AND quantity + ? >= 0";
+
+    private final ProductProperties productProperties;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Long, Pending> pendingDeltas = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> availableStock = new ConcurrentHashMap<>();
+    // Held by a flush from its write until its deltas leave the pending sums, so a reload reads
+    // the quantity and the pending sum on the same side of the commit.
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    // Bumped before every removal from availableStock, so a view loaded meanwhile is not kept.
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public boolean isEnabled() {
+        return productProperties.getStock().getWriteBehind().isEnabled();
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        if (isEnabled()) {
+            log.warn("Stock adjustments are written behind; this is only safe while a single instance serves them");
+            taskRegistrar.addFixedDelayTask(this::flush, productProperties.getStock().getWriteBehind().getFlushInterval());
+        }
+    }
+
+    public void adjust(Long productId, int delta) {
+        AtomicInteger available = available(productId);
+        int current;
+        do {
+            current = available.get();
+            if (current + delta < 0) {
+                throw new InsufficientStockException("Not enough stock for product with id: " + productId);
+            }
+        } while (!available.compareAndSet(current, current + delta));
+        Pending pending = pendingDeltas.computeIfAbsent(productId, id -> new Pending());
+        (delta > 0 ? pending.increments : pending.decrements).add(delta);
+    }
+
+    @PreDestroy
+    public void flush() {
+        // Rows and the sums they drain, increments first: they go through whatever the decrements do.
+        List<Object[]> batch = new ArrayList<>();
+        List<LongAdder> sources = new ArrayList<>();
+        pendingDeltas.forEach((productId, pending) -> addRow(batch, sources, productId, pending.increments));
+        pendingDeltas.forEach((productId, pending) -> addRow(batch, sources, productId, pending.decrements));
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Long> rejected;
+        flushLock.writeLock().lock();
+        try {
+            rejected = new TransactionTemplate(transactionManager).execute(status -> write(batch));
+            for (int i = 0; i < batch.size(); i++) {
+                sources.get(i).add(-(int) batch.get(i)[0]);
+            }
+        } catch (RuntimeException ex) {
+            // The deltas are still pending and go out with the next flush.
+            log.error("Failed to flush stock adjustments for {} products, will retry", batch.size(), ex);
+            return;
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+        rejected.forEach(this::invalidate);
+    }
+
+    private static void addRow(List<Object[]> batch, List<LongAdder> sources, Long productId, LongAdder deltas) {
+        int delta = (int) deltas.sum();
+        if (delta != 0) {
+            batch.add(new Object[]{delta, productId, delta});
+            sources.add(deltas);
+        }
+    }
+
+    /**
+     * Writes made outside this buffer change the stock it mirrors; reload it on next use.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() != ProductChangedEvent.Type.STOCK_ADJUSTED) {
+            invalidate(event.getProductId());
+        }
+    }
+
+    private void invalidate(Long productId) {
+        invalidations.incrementAndGet();
+        availableStock.remove(productId);
+    }
+
+    /**
+     * Loaded outside the map: {@code computeIfAbsent} would hold the map bin, and pin a virtual
+     * thread to its carrier, for the whole query. A view loaded while an invalidation ran may
+     * predate the write behind it and is loaded again.
+     */
+    private AtomicInteger available(Long productId) {
+        while (true) {
+            AtomicInteger available = availableStock.get(productId);
+            if (available != null) {
+                return available;
+            }
+            long invalidationsBefore = invalidations.get();
+            AtomicInteger loaded = loadAvailable(productId);
+            available = availableStock.putIfAbsent(productId, loaded);
+            if (available != null) {
+                return available;
+            }
+            if (invalidations.get() == invalidationsBefore) {
+                return loaded;
+            }
+            availableStock.remove(productId, loaded);
+        }
+    }
+
+    /**
+     * The products for which the database rejected a row.
+     */
+    private List<Long> write(List<Object[]> batch) {
+        List<Long> rejected = new ArrayList<>();
+        int[] updated = jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+        for (int i = 0; i < updated.length; i++) {
+            Long productId = (Long) batch.get(i)[1];
+            int delta = (int) batch.get(i)[0];
+            if (updated[i] == 0) {
+                // The row was deleted or its stock lowered since the delta was accepted.
+                log.error("Rejected accepted stock adjustment of {} for product with id: {}", delta, productId);
+                Counter.builder("products.stock.write-behind.rejected")
+                        .description("Accepted write-behind stock adjustments the database rejected at flush")
+                        .register(meterRegistry)
+                        .increment();
+                rejected.add(productId);
+            } else {
+                eventPublisher.publishEvent(ProductChangedEvent.stockAdjusted(productId, delta));
+            }
+        }
+        return rejected;
+    }
+
+    private AtomicInteger loadAvailable(Long productId) {
+        flushLock.readLock().lock();
+        try {
+            int quantity = productRepository.findQuantityById(productId)
+                    .orElseThrow(() -> new NotFoundException("Product not found with id: " + productId));
+            Pending pending = pendingDeltas.get(productId);
+            return new AtomicInteger(quantity + (pending == null ? 0 : pending.sum()));
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Accepted deltas of one product not yet committed.
+     */
+    private static class Pending {
+        private final LongAdder increments = new LongAdder();
+        private final LongAdder decrements = new LongAdder();
+
+        int sum() {
+            return (int) (increments.sum() + decrements.sum());
+        }
+    }
+}
@@ -0,0 +1,10 @@
+-- Initial schema of Product, as Hibernate's ddl-auto used to create it. Databases that predate
+-- this migration already have the table and apply it out of order as a no-op.
+CREATE TABLE IF NOT EXISTS products (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255),
+    description VARCHAR(255),
+    country VARCHAR(255),
+    price DOUBLE PRECISION NOT NULL,
+    quantity INTEGER NOT NULL
+);
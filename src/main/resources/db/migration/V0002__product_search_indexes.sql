@@ -0,0 +1,17 @@
+-- Product is mapped to "products"; make sure the table exists before it is indexed.
+CREATE TABLE IF NOT EXISTS products (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255),
+    description VARCHAR(255),
+    country VARCHAR(255),
+    price DOUBLE PRECISION NOT NULL,
+    quantity INTEGER NOT NULL
+);
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+-- Serves "lower(name) LIKE '%...%'" and, through btree_gin, the price range of
+-- the same search in a single bitmap index scan.
+CREATE INDEX IF NOT EXISTS idx_products_name_trgm_price
+    ON products USING gin (lower(name) gin_trgm_ops, price);
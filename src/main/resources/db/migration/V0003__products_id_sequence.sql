@@ -0,0 +1,9 @@
+-- Product ids come from a pooled sequence (allocationSize = 50 in Product) so Hibernate can
+-- batch inserts; IDENTITY needs the generated key back after every single row.
+CREATE SEQUENCE IF NOT EXISTS products_seq INCREMENT BY 50;
+
+-- The pooled optimizer hands out (value - 49 .. value), so the first value must clear every id in use.
+SELECT setval('products_seq', (SELECT COALESCE(MAX(id), 0) FROM products) + 50, false);
+
+-- A column default would hand out ids from the same ranges the application allocates.
+ALTER TABLE products ALTER COLUMN id DROP IDENTITY IF EXISTS;
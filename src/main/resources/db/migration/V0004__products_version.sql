@@ -0,0 +1,2 @@
+-- Optimistic-locking version of Product; also the source of the ETags on product reads.
+ALTER TABLE products ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
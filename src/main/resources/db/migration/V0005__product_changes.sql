@@ -0,0 +1,47 @@
+-- Change feed behind GET /products/changes: one row per written product, keyed by the writing
+-- transaction. Readers only return transactions older than every one still running
+-- (pg_snapshot_xmin), so a change that commits late can never fall behind a cursor.
+CREATE TABLE IF NOT EXISTS product_changes (
+    tx_id      BIGINT      NOT NULL DEFAULT (pg_current_xact_id()::text::bigint),
+    id         BIGINT GENERATED ALWAYS AS IDENTITY,
+    product_id BIGINT      NOT NULL,
+    deleted    BOOLEAN     NOT NULL,
+    changed_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (tx_id, id)
+);
+
+-- Cursors below this position point into pruned history; clients have to download the catalog
+-- again. Starts at the migrating transaction, whose products were never recorded.
+CREATE TABLE IF NOT EXISTS product_changes_horizon (
+    tx_id BIGINT NOT NULL
+);
+INSERT INTO product_changes_horizon (tx_id)
+SELECT pg_current_xact_id()::text::bigint
+WHERE NOT EXISTS (SELECT 1 FROM product_changes_horizon);
+
+-- Statement-level so bulk writes record their rows with a single INSERT ... SELECT.
+CREATE OR REPLACE FUNCTION record_product_changes() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO product_changes (product_id, deleted) SELECT id, true FROM old_rows ORDER BY id;
+    ELSE
+        INSERT INTO product_changes (product_id, deleted) SELECT id, false FROM new_rows ORDER BY id;
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS products_inserted ON products;
+CREATE TRIGGER products_inserted AFTER INSERT ON products
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION record_product_changes();
+
+DROP TRIGGER IF EXISTS products_updated ON products;
+CREATE TRIGGER products_updated AFTER UPDATE ON products
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION record_product_changes();
+
+DROP TRIGGER IF EXISTS products_deleted ON products;
+CREATE TRIGGER products_deleted AFTER DELETE ON products
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION record_product_changes();
@@ -0,0 +1,37 @@
+package com.eva.test.benchmark;
+
+import com.eva.test.dto.ProductDTO;
+import com.eva.test.entity.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic catalog shared by the benchmarks.
+ */
+final class BenchmarkData {
+    private static final String[] WORDS = {"apple", "banana", "cherry", "milk", "bread", "cheese",
+            "coffee", "tea", "juice", "butter", "yogurt", "honey", "rice", "pasta", "salt", "sugar"};
+
+    private BenchmarkData() {
+    }
+
+    static List<Product> products(int size) {
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i;
+            products.add(new Product((long) i + 1, name, "Description of " + name, "Country " + (i % 20),
+                    (i % 1000) / 10.0, i % 100, 0L));
+        }
+        return products;
+    }
+
+    static List<ProductDTO> productDTOs(int size) {
+        List<ProductDTO> productDTOs = new ArrayList<>(size);
+        for (Product product : products(size)) {
+            productDTOs.add(new ProductDTO(product.getId(), product.getName(), product.getDescription(),
+                    product.getCountry(), product.getPrice(), product.getQuantity(), product.getVersion()));
+        }
+        return productDTOs;
+    }
+}
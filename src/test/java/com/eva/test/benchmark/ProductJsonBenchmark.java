@@ -0,0 +1,40 @@
+package com.eva.test.benchmark;
+
+import com.eva.test.dto.ProductDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of serializing list and search responses, using an ObjectMapper configured the way
+ * Spring Boot configures the one behind the HTTP message converters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductJsonBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int size;
+
+    private List<ProductDTO> products;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        products = BenchmarkData.productDTOs(size);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(products);
+    }
+}
@@ -0,0 +1,49 @@
+package com.eva.test.benchmark;
+
+import com.eva.test.dto.ProductDTO;
+import com.eva.test.entity.Product;
+import com.eva.test.mapper.ProductMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row cost of {@link ProductMapper#toDtoList} against the reflective ModelMapper
+ * path it replaced. Run with {@code -prof gc} to see the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductMapperBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private List<Product> products;
+    private ProductMapper productMapper;
+    private ModelMapper modelMapper;
+
+    @Setup
+    public void setUp() {
+        products = BenchmarkData.products(size);
+        productMapper = new ProductMapper();
+        modelMapper = new ModelMapper();
+    }
+
+    @Benchmark
+    public List<ProductDTO> handWritten() {
+        return productMapper.toDtoList(products);
+    }
+
+    @Benchmark
+    public List<ProductDTO> modelMapper() {
+        return products.stream()
+                .map(product -> modelMapper.map(product, ProductDTO.class))
+                .toList();
+    }
+}
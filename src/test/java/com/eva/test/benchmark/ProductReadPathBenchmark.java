@@ -0,0 +1,119 @@
+package com.eva.test.benchmark;
+
+import com.eva.test.TestApplication;
+import com.eva.test.dto.ProductDTO;
+import com.eva.test.entity.Product;
+import com.eva.test.mapper.ProductMapper;
+import com.eva.test.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * List and search read paths against a real PostgreSQL: {@code entity} loads managed
+ * {@link Product}s and maps them with {@link ProductMapper}, as those paths used to;
+ * {@code projection} is the {@link ProductRepository} DTO query they use now. Connects to the
+ * database in {@code application.properties} (override with
+ * {@code -jvmArgsAppend -Dspring.datasource.url=...}) and tops the catalog up to
+ * {@code catalogSize} rows, so point it at a scratch database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductReadPathBenchmark {
+
+    private static final String ENTITY_PAGE = "SELECT p FROM Product p WHERE p.id > :after ORDER BY p.id";
+    private static final String ENTITY_SEARCH = "SELECT p.* FROM products p " +
+            "WHERE lower(p.name) LIKE '%' || lower(:name) || '%' " +
+            "AND p.price BETWEEN :minPrice AND :maxPrice " +
+            "ORDER BY similarity(lower(p.name), lower(:name)) DESC, p.id " +
+            "LIMIT :limit";
+
+    private static final int CATALOG_SIZE = 20_000;
+
+    @Param({"50", "1000"})
+    private int pageSize;
+
+    @Param({"entity", "projection"})
+    private String path;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private ProductMapper productMapper;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(TestApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("products.sql-profiler.enabled=false", "logging.level.root=WARN",
+                        "logging.level.org.hibernate.SQL=WARN")
+                .run();
+        productRepository = context.getBean(ProductRepository.class);
+        productMapper = context.getBean(ProductMapper.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                context.getBean(EntityManagerFactory.class));
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ProductDTO> page() {
+        return readOnlyTransaction.execute(status -> "entity".equals(path)
+                ? productMapper.toDtoList(entityManager.createQuery(ENTITY_PAGE, Product.class)
+                        .setParameter("after", 0L)
+                        .setMaxResults(pageSize)
+                        .getResultList())
+                : productRepository.findPageAfter(0L, Limit.of(pageSize)));
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<ProductDTO> search() {
+        return readOnlyTransaction.execute(status -> "entity".equals(path)
+                ? productMapper.toDtoList(entityManager.createNativeQuery(ENTITY_SEARCH, Product.class)
+                        .setParameter("name", "apple")
+                        .setParameter("minPrice", Double.NEGATIVE_INFINITY)
+                        .setParameter("maxPrice", Double.POSITIVE_INFINITY)
+                        .setParameter("limit", pageSize)
+                        .getResultList())
+                : productRepository.searchProducts("apple", Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                        pageSize));
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate) {
+        Long existing = jdbcTemplate.queryForObject("SELECT count(*) FROM products", Long.class);
+        int missing = CATALOG_SIZE - existing.intValue();
+        if (missing <= 0) {
+            return;
+        }
+        // One sequence block per row wastes ids but can never collide with the blocks Hibernate takes.
+        List<Object[]> rows = BenchmarkData.products(missing).stream()
+                .map(product -> new Object[]{product.getName(), product.getDescription(), product.getCountry(),
+                        product.getPrice(), product.getQuantity()})
+                .toList();
+        jdbcTemplate.batchUpdate("INSERT INTO products (id, name, description, country, price, quantity, version) "
+                + "VALUES (nextval('products_seq'), ?, ?, ?, ?, ?, 0)", rows);
+    }
+}
@@ -0,0 +1,121 @@
+package com.eva.test.benchmark;
+
+import com.eva.test.cache.ProductCache;
+import com.eva.test.config.ProductProperties;
+import com.eva.test.dto.ProductDTO;
+import com.eva.test.entity.Product;
+import com.eva.test.mapper.ProductMapper;
+import com.eva.test.repository.ProductRepository;
+import com.eva.test.search.ProductSearchCoalescer;
+import com.eva.test.search.ProductSearchIndex;
+import com.eva.test.service.productServiceImpl.ProductServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProductServiceImpl#searchProducts} end to end below the controller. The
+ * {@code database} backend is a stand-in repository that scans the catalog the way a
+ * sequential scan would, so it measures service, transaction and mapping overhead plus a
+ * scan; {@code inMemory} goes through {@link ProductSearchIndex}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    @Param({"10000", "100000"})
+    private int catalogSize;
+
+    @Param({"database", "inMemory"})
+    private String backend;
+
+    @Param({"cheese", "apple honey"})
+    private String query;
+
+    private ProductServiceImpl productService;
+
+    @Setup
+    public void setUp() {
+        ProductRepository productRepository = standInRepository(BenchmarkData.products(catalogSize));
+        ProductProperties productProperties = new ProductProperties();
+        productProperties.getSearch().getInMemory().setEnabled("inMemory".equals(backend));
+        ProductMapper productMapper = new ProductMapper();
+        NoOpTransactionManager transactionManager = new NoOpTransactionManager();
+        ProductSearchIndex productSearchIndex = new ProductSearchIndex(productProperties, productRepository,
+                productMapper, transactionManager);
+        productSearchIndex.build();
+        productService = new ProductServiceImpl(productRepository, productMapper, productProperties, null,
+                event -> { }, productSearchIndex, transactionManager, new ProductCache(productProperties), null, null,
+                new ProductSearchCoalescer(productProperties, new SimpleMeterRegistry()));
+    }
+
+    @Benchmark
+    public List<ProductDTO> searchWithoutPriceRange() {
+        return productService.searchProducts(query, null, null);
+    }
+
+    @Benchmark
+    public List<ProductDTO> searchWithPriceRange() {
+        return productService.searchProducts(query, 20.0, 40.0);
+    }
+
+    private static ProductRepository standInRepository(List<Product> catalog) {
+        return (ProductRepository) Proxy.newProxyInstance(ProductRepository.class.getClassLoader(),
+                new Class<?>[]{ProductRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "searchProducts" -> scan(catalog, (String) args[0], (double) args[1], (double) args[2],
+                            (int) args[3]);
+                    case "streamAllOrderByPrice" -> catalog.stream()
+                            .sorted(Comparator.comparingDouble(Product::getPrice));
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static List<ProductDTO> scan(List<Product> catalog, String name, double minPrice, double maxPrice,
+                                         int limit) {
+        String pattern = name.toLowerCase(Locale.ROOT);
+        ProductMapper projection = new ProductMapper();
+        List<ProductDTO> result = new ArrayList<>();
+        for (Product product : catalog) {
+            if (product.getName().toLowerCase(Locale.ROOT).contains(pattern)
+                    && product.getPrice() >= minPrice && product.getPrice() <= maxPrice) {
+                result.add(projection.toDto(product));
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.eva.test.benchmark;
+
+import com.eva.test.dto.ProductDTO;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bytes on the wire and encoding cost of a product list in each format the API negotiates,
+ * with and without the gzip step Tomcat applies to responses over the compression threshold.
+ * The encoded size of each combination is printed once per trial, before its iterations run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductWireFormatBenchmark {
+
+    @Param({"10", "1000"})
+    private int size;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private List<ProductDTO> products;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        products = BenchmarkData.productDTOs(size);
+        JsonFactory factory = switch (format) {
+            case "json" -> new JsonFactory();
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+        objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory).build();
+        try {
+            System.out.printf("%n%d products as %s%s: %d bytes%n", size, format, gzip ? "+gzip" : "",
+                    encodeList().length);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeList() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        try (OutputStream out = gzip ? new GZIPOutputStream(buffer) : buffer) {
+            objectMapper.writeValue(out, products);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,140 @@
+package com.eva.test.cache;
+
+import com.eva.test.config.ProductProperties;
+import com.eva.test.dto.ProductDTO;
+import com.eva.test.event.ProductChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCacheTest {
+
+    @Test
+    void testLoadsOnceAndInvalidatesOnChange() {
+        ProductCache productCache = new ProductCache(new ProductProperties());
+        AtomicInteger loads = new AtomicInteger();
+
+        productCache.get(1L, id -> product(id, loads.incrementAndGet()));
+        productCache.get(1L, id -> product(id, loads.incrementAndGet()));
+        productCache.onProductChanged(ProductChangedEvent.deleted(1L));
+        ProductDTO reloaded = productCache.get(1L, id -> product(id, loads.incrementAndGet()));
+
+        assertEquals(2, reloaded.getQuantity());
+        assertEquals(1, productCache.stats().hitCount());
+        assertEquals(2, productCache.stats().missCount());
+    }
+
+    @Test
+    void testDisabledCacheAlwaysLoads() {
+        ProductProperties productProperties = new ProductProperties();
+        productProperties.getCache().setEnabled(false);
+        ProductCache productCache = new ProductCache(productProperties);
+        AtomicInteger loads = new AtomicInteger();
+
+        productCache.get(1L, id -> product(id, loads.incrementAndGet()));
+        productCache.get(1L, id -> product(id, loads.incrementAndGet()));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, productCache.size());
+    }
+
+    @Test
+    void testInvalidationDuringLoadDropsTheLoadedValue() throws Exception {
+        ProductCache productCache = new ProductCache(new ProductProperties());
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<ProductDTO> staleLoad = CompletableFuture.supplyAsync(() -> productCache.get(1L, id -> {
+            loading.countDown();
+            await(release);
+            return product(id, 1);
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> invalidation = CompletableFuture.runAsync(() -> productCache.invalidate(1L));
+        release.countDown();
+        staleLoad.get(5, TimeUnit.SECONDS);
+        invalidation.get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, productCache.get(1L, id -> product(id, 2)).getQuantity());
+    }
+
+    @Test
+    void testLoadRunsOutsideTheCacheLock() throws Exception {
+        ProductCache productCache = new ProductCache(new ProductProperties());
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<ProductDTO> load = CompletableFuture.supplyAsync(() -> productCache.get(1L, id -> {
+            loading.countDown();
+            await(release);
+            return product(id, loads.incrementAndGet());
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ProductDTO> follower = CompletableFuture.supplyAsync(
+                () -> productCache.get(1L, id -> product(id, loads.incrementAndGet())));
+
+        // Neither waits for the load nor sees it as a cached product.
+        assertNull(productCache.getIfPresent(1L));
+        productCache.get(2L, id -> product(id, 0));
+        release.countDown();
+
+        assertEquals(1, load.get(5, TimeUnit.SECONDS).getQuantity());
+        assertEquals(1, follower.get(5, TimeUnit.SECONDS).getQuantity());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testFailedLoadIsRethrownAndNotCached() {
+        ProductCache productCache = new ProductCache(new ProductProperties());
+        IllegalStateException failure = new IllegalStateException("Not found");
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> productCache.get(1L, id -> {
+            throw failure;
+        })));
+
+        assertEquals(1, productCache.get(1L, id -> product(id, 1)).getQuantity());
+        assertEquals(1, productCache.loadFailureCount());
+    }
+
+    @Test
+    void testBulkReadIsCachedUnlessSomethingWasInvalidated() {
+        ProductCache productCache = new ProductCache(new ProductProperties());
+        productCache.get(1L, id -> product(id, 1));
+
+        long stamp = productCache.invalidationStamp();
+        productCache.putAllIfUnchanged(stamp, List.of(product(1L, 9), product(2L, 2)));
+
+        Map<Long, ProductDTO> present = productCache.getAllPresent(List.of(1L, 2L, 3L));
+        assertEquals(1, present.get(1L).getQuantity());
+        assertEquals(2, present.get(2L).getQuantity());
+        assertEquals(2, present.size());
+
+        // Read before product 4 changed, so it may be stale.
+        stamp = productCache.invalidationStamp();
+        productCache.onProductChanged(ProductChangedEvent.deleted(4L));
+        productCache.putAllIfUnchanged(stamp, List.of(product(3L, 3)));
+
+        assertNull(productCache.getIfPresent(3L));
+    }
+
+    private static ProductDTO product(Long id, int quantity) {
+        return ProductDTO.builder().id(id).name("Product").quantity(quantity).build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+}
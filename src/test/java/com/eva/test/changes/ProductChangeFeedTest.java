@@ -0,0 +1,158 @@
+package com.eva.test.changes;
+
+import com.eva.test.config.ProductProperties;
+import com.eva.test.dto.ProductChangeDTO;
+import com.eva.test.dto.ProductChangesDTO;
+import com.eva.test.exception.GoneException;
+import com.eva.test.repository.ProductChangeRepository;
+import com.eva.test.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductChangeFeedTest {
+
+    private static final ProductChangesDTO NOTHING_AFTER_5 = new ProductChangesDTO(List.of(), 5L);
+    private static final ProductChangesDTO CHANGES_AFTER_5 =
+            new ProductChangesDTO(List.of(new ProductChangeDTO(8L, 1L, true, null)), 8L);
+
+    private ProductService productService;
+    private ProductChangeRepository productChangeRepository;
+    private List<Runnable> senders;
+    private ProductChangeFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        productService = mock(ProductService.class);
+        productChangeRepository = mock(ProductChangeRepository.class);
+        senders = new ArrayList<>();
+        ProductProperties productProperties = new ProductProperties();
+        productProperties.getChanges().setMaxQueuedEvents(2);
+        feed = new ProductChangeFeed(productService, productChangeRepository, productProperties, senders::add);
+    }
+
+    @Test
+    void testPollAnswersAtOnceWhenThereAreChanges() {
+        when(productService.getChanges(5L, null)).thenReturn(CHANGES_AFTER_5);
+
+        DeferredResult<ProductChangesDTO> result = feed.poll(5L, null, Duration.ofSeconds(10));
+
+        assertEquals(CHANGES_AFTER_5, result.getResult());
+    }
+
+    @Test
+    void testPollWithoutWaitAnswersAtOnce() {
+        when(productService.getChanges(5L, null)).thenReturn(NOTHING_AFTER_5);
+
+        DeferredResult<ProductChangesDTO> result = feed.poll(5L, null, Duration.ZERO);
+
+        assertEquals(NOTHING_AFTER_5, result.getResult());
+    }
+
+    @Test
+    void testPollIsAnsweredByDeliverOnceChangesArrive() {
+        when(productService.getChanges(5L, null)).thenReturn(NOTHING_AFTER_5);
+        DeferredResult<ProductChangesDTO> first = feed.poll(5L, null, Duration.ofSeconds(10));
+        DeferredResult<ProductChangesDTO> second = feed.poll(5L, null, Duration.ofSeconds(10));
+        assertFalse(first.hasResult());
+
+        when(productService.getChanges(null, null)).thenReturn(new ProductChangesDTO(List.of(), 8L));
+        when(productService.getChanges(5L, null)).thenReturn(CHANGES_AFTER_5);
+        feed.deliver();
+
+        assertEquals(CHANGES_AFTER_5, first.getResult());
+        assertEquals(CHANGES_AFTER_5, second.getResult());
+        // Two polls at the same position share one fetch on top of the two initial reads.
+        verify(productService, times(3)).getChanges(5L, null);
+    }
+
+    @Test
+    void testDeliverSkipsFetchWhileHeadHasNotMoved() {
+        when(productService.getChanges(5L, null)).thenReturn(NOTHING_AFTER_5);
+        DeferredResult<ProductChangesDTO> result = feed.poll(5L, null, Duration.ofSeconds(10));
+
+        when(productService.getChanges(null, null)).thenReturn(NOTHING_AFTER_5);
+        feed.deliver();
+
+        assertFalse(result.hasResult());
+        verify(productService, times(1)).getChanges(5L, null);
+    }
+
+    @Test
+    void testDeliverPassesFetchErrorsToThePoll() {
+        when(productService.getChanges(5L, null)).thenReturn(NOTHING_AFTER_5);
+        DeferredResult<ProductChangesDTO> result = feed.poll(5L, null, Duration.ofSeconds(10));
+
+        when(productService.getChanges(null, null)).thenReturn(new ProductChangesDTO(List.of(), 8L));
+        when(productService.getChanges(5L, null)).thenThrow(new GoneException("pruned"));
+        feed.deliver();
+
+        assertInstanceOf(GoneException.class, result.getResult());
+    }
+
+    @Test
+    void testDeliverDoesNothingWithoutClients() {
+        feed.deliver();
+
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void testSubscribeFailsBeforeStreamingWhenPruned() {
+        when(productService.getChanges(1L, null)).thenThrow(new GoneException("pruned"));
+
+        assertThrows(GoneException.class, () -> feed.subscribe(1L, null));
+    }
+
+    @Test
+    void testStreamAdvancesWithEveryPageSent() {
+        when(productService.getChanges(5L, null)).thenReturn(NOTHING_AFTER_5);
+        feed.subscribe(5L, null);
+
+        when(productService.getChanges(null, null)).thenReturn(new ProductChangesDTO(List.of(), 8L));
+        when(productService.getChanges(5L, null)).thenReturn(CHANGES_AFTER_5);
+        feed.deliver();
+        feed.deliver();
+
+        // Once for the subscription, once for the first tick; the second tick is already at the head.
+        verify(productService, times(2)).getChanges(5L, null);
+        verify(productService, never()).getChanges(eq(8L), any());
+    }
+
+    @Test
+    void testStreamThatFallsBehindIsDisconnected() {
+        when(productService.getChanges(5L, null)).thenReturn(NOTHING_AFTER_5);
+        feed.subscribe(5L, null);
+        when(productService.getChanges(null, null)).thenReturn(new ProductChangesDTO(List.of(), 11L));
+        when(productService.getChanges(5L, null)).thenReturn(CHANGES_AFTER_5);
+        when(productService.getChanges(8L, null)).thenReturn(
+                new ProductChangesDTO(List.of(new ProductChangeDTO(9L, 2L, true, null)), 9L));
+        when(productService.getChanges(9L, null)).thenReturn(
+                new ProductChangesDTO(List.of(new ProductChangeDTO(11L, 3L, true, null)), 11L));
+
+        // The sender never runs, as if blocked on the client's socket: the third page overflows.
+        feed.deliver();
+        assertEquals(1, senders.size());
+
+        feed.deliver();
+        // The stream was dropped, so the second run has nobody to read the head for.
+        verify(productService, times(1)).getChanges(null, null);
+    }
+
+    @Test
+    void testPruneUsesRetention() {
+        when(productChangeRepository.prune(any(Duration.class))).thenReturn(3L);
+
+        feed.prune();
+
+        verify(productChangeRepository, times(1)).prune(new ProductProperties().getChanges().getRetention());
+    }
+}
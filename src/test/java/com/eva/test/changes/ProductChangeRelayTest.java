@@ -0,0 +1,77 @@
+package com.eva.test.changes;
+
+import com.eva.test.config.ProductProperties;
+import com.eva.test.dto.ProductChangeDTO;
+import com.eva.test.dto.ProductChangesDTO;
+import com.eva.test.dto.ProductDTO;
+import com.eva.test.event.ProductChangedEvent;
+import com.eva.test.exception.GoneException;
+import com.eva.test.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductChangeRelayTest {
+
+    private static final ProductDTO PRODUCT = new ProductDTO(1L, "Milk", "Fresh", "UA", 10.0, 5, 2L);
+
+    private ProductService productService;
+    private ApplicationEventPublisher eventPublisher;
+    private ProductChangeRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        productService = mock(ProductService.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        relay = new ProductChangeRelay(productService, eventPublisher, new ProductProperties());
+        when(productService.getChanges(null, null)).thenReturn(new ProductChangesDTO(List.of(), 5L));
+    }
+
+    @Test
+    void testFirstRunOnlyTakesTheHead() {
+        relay.relay();
+
+        verify(productService).getChanges(null, null);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testPublishesEveryChangeAfterThePosition() {
+        relay.relay();
+        when(productService.getChanges(5L, null)).thenReturn(new ProductChangesDTO(List.of(
+                new ProductChangeDTO(7L, 1L, false, PRODUCT), new ProductChangeDTO(7L, 2L, true, null)), 7L));
+        when(productService.getChanges(7L, null)).thenReturn(new ProductChangesDTO(List.of(), 7L));
+
+        relay.relay();
+        relay.relay();
+
+        ArgumentCaptor<ProductChangedEvent> events = ArgumentCaptor.forClass(ProductChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(ProductChangedEvent.Type.SAVED, events.getAllValues().get(0).getType());
+        assertEquals(PRODUCT, events.getAllValues().get(0).getProduct());
+        assertEquals(ProductChangedEvent.Type.DELETED, events.getAllValues().get(1).getType());
+        assertEquals(2L, events.getAllValues().get(1).getProductId());
+    }
+
+    @Test
+    void testRestartsFromTheHeadWhenPositionWasPruned() {
+        relay.relay();
+        when(productService.getChanges(5L, null)).thenThrow(new GoneException("pruned"));
+        relay.relay();
+        when(productService.getChanges(null, null)).thenReturn(new ProductChangesDTO(List.of(), 9L));
+        when(productService.getChanges(9L, null)).thenReturn(new ProductChangesDTO(List.of(), 9L));
+
+        relay.relay();
+        relay.relay();
+
+        verify(productService).getChanges(9L, null);
+        verifyNoInteractions(eventPublisher);
+    }
+}
@@ -0,0 +1,49 @@
+package com.eva.test.config;
+
+import com.eva.test.dto.ProductDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetricsConfigurationTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    private final MetricsConfiguration configuration = new MetricsConfiguration();
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testTimesEachFormatByMediaType() throws IOException {
+        ProductDTO product = ProductDTO.builder().id(1L).name("Test Product").build();
+
+        MockHttpOutputMessage json = new MockHttpOutputMessage();
+        configuration.mappingJackson2HttpMessageConverter(new ObjectMapper(), meterRegistry)
+                .write(product, MediaType.APPLICATION_JSON, json);
+        configuration.mappingJackson2CborHttpMessageConverter(new Jackson2ObjectMapperBuilder(), meterRegistry)
+                .write(product, MediaType.APPLICATION_CBOR, new MockHttpOutputMessage());
+        configuration.mappingJackson2SmileHttpMessageConverter(new Jackson2ObjectMapperBuilder(), meterRegistry)
+                .write(product, SMILE, new MockHttpOutputMessage());
+
+        for (String mediaType : new String[]{"application/json", "application/cbor", "application/x-jackson-smile"}) {
+            assertEquals(1, meterRegistry.get("products.serialization")
+                    .tag("media.type", mediaType)
+                    .tag("type", "ProductDTO")
+                    .timer().count(), mediaType);
+        }
+        // Serialized into a buffer while timed, then copied to the response.
+        assertEquals(new ObjectMapper().writeValueAsString(product), json.getBodyAsString());
+    }
+}
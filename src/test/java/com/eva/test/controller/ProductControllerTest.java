@@ -1,29 +1,62 @@
 package com.eva.test.controller;
 
+import com.eva.test.changes.ProductChangeFeed;
+import com.eva.test.dto.ProductBulkUpdateDTO;
+import com.eva.test.config.ProductProperties;
+import com.eva.test.dto.ProductChangeDTO;
+import com.eva.test.dto.ProductChangesDTO;
 import com.eva.test.dto.ProductDTO;
+import com.eva.test.dto.ProductFacetsDTO;
+import com.eva.test.dto.ProductLookupDTO;
+import com.eva.test.dto.ProductPageDTO;
+import com.eva.test.exception.GoneException;
+import com.eva.test.exception.InsufficientStockException;
+import com.eva.test.exception.PreconditionFailedException;
 import com.eva.test.service.ProductService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(ProductController.class)
+@Import(ContentNegotiationConfiguration.class)
+@EnableConfigurationProperties(ProductProperties.class)
 class ProductControllerTest {
 
     @Autowired
@@ -32,6 +65,9 @@ class ProductControllerTest {
     @MockBean
     private ProductService productService;
 
+    @MockBean
+    private ProductChangeFeed productChangeFeed;
+
     private ProductDTO productDTO;
 
     @BeforeEach
@@ -46,16 +82,75 @@ class ProductControllerTest {
 
     @Test
     void testGetAllProducts() throws Exception {
-        List<ProductDTO> productList = Collections.singletonList(productDTO);
-        when(productService.getAllProducts()).thenReturn(productList);
+        ProductPageDTO page = new ProductPageDTO(Collections.singletonList(productDTO), 1L);
+        when(productService.getAllProducts(isNull(), isNull())).thenReturn(page);
 
         mockMvc.perform(get("/products")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.size()").value(1))
-                .andExpect(jsonPath("$[0].name").value("Test Product"));
+                .andExpect(jsonPath("$.products.size()").value(1))
+                .andExpect(jsonPath("$.products[0].name").value("Test Product"))
+                .andExpect(jsonPath("$.nextCursor").value(1));
+
+        verify(productService, times(1)).getAllProducts(isNull(), isNull());
+    }
+
+    @Test
+    void testGetAllProductsAfterCursor() throws Exception {
+        ProductPageDTO page = new ProductPageDTO(Collections.singletonList(productDTO), null);
+        when(productService.getAllProducts(10L, 20)).thenReturn(page);
+
+        mockMvc.perform(get("/products")
+                        .param("after", "10")
+                        .param("limit", "20")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products.size()").value(1))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        verify(productService, times(1)).getAllProducts(10L, 20);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExportProductsAsNdjson() throws Exception {
+        productDTO.setId(1L);
+        productDTO.setVersion(0L);
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Consumer.class).accept(productDTO);
+            return null;
+        }).when(productService).exportProducts(any(Consumer.class));
+
+        mockMvc.perform(get("/products/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1,\"name\":\"Test Product\",\"description\":\"Test Description\","
+                        + "\"country\":\"Test Country\",\"price\":100.0,\"quantity\":10,\"version\":0}\n"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExportProductsAsCsv() throws Exception {
+        productDTO.setId(1L);
+        productDTO.setDescription("Big, \"fresh\"");
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Consumer.class).accept(productDTO);
+            return null;
+        }).when(productService).exportProducts(any(Consumer.class));
+
+        mockMvc.perform(get("/products/export").param("format", "csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("id,name,description,country,price,quantity\n"
+                        + "1,Test Product,\"Big, \"\"fresh\"\"\",Test Country,100.0,10\n"));
+    }
+
+    @Test
+    void testExportProductsUnsupportedFormat() throws Exception {
+        mockMvc.perform(get("/products/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
 
-        verify(productService, times(1)).getAllProducts();
+        verify(productService, never()).exportProducts(any());
     }
 
     @Test
@@ -70,6 +165,104 @@ class ProductControllerTest {
         verify(productService, times(1)).getProductById(anyLong());
     }
 
+    @Test
+    void testGetProductsByIds() throws Exception {
+        productDTO.setId(2L);
+        when(productService.getProductsByIds(List.of(2L, 5L)))
+                .thenReturn(new ProductLookupDTO(List.of(productDTO), List.of(5L)));
+
+        mockMvc.perform(get("/products").param("ids", "2,5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products[0].id").value(2))
+                .andExpect(jsonPath("$.missingIds[0]").value(5));
+
+        verify(productService, never()).getAllProducts(any(), any());
+    }
+
+    @Test
+    void testLookupProducts() throws Exception {
+        when(productService.getProductsByIds(List.of(3L, 1L)))
+                .thenReturn(new ProductLookupDTO(List.of(productDTO), List.of(1L)));
+
+        mockMvc.perform(post("/products/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[3, 1]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products[0].name").value("Test Product"))
+                .andExpect(jsonPath("$.missingIds[0]").value(1));
+    }
+
+    @Test
+    void testDatabaseTimeoutAnswersServiceUnavailable() throws Exception {
+        when(productService.getProductById(1L)).thenThrow(new CannotCreateTransactionException(
+                "Could not open JPA EntityManager for transaction",
+                new SQLTransientConnectionException("Connection is not available, request timed out after 30000ms")));
+
+        mockMvc.perform(get("/products/1"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.statusCode").value(503));
+    }
+
+    @Test
+    void testGetProductByIdReturnsETag() throws Exception {
+        productDTO.setVersion(3L);
+        when(productService.getProductById(1L)).thenReturn(productDTO);
+
+        mockMvc.perform(get("/products/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"3\""))
+                .andExpect(jsonPath("$.version").value(3));
+
+        verify(productService, never()).getProductVersion(anyLong());
+    }
+
+    @Test
+    void testGetProductByIdNotModified() throws Exception {
+        when(productService.getProductVersion(1L)).thenReturn(3L);
+
+        mockMvc.perform(get("/products/1").header(HttpHeaders.IF_NONE_MATCH, "W/\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"3\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(content().string(""));
+
+        verify(productService, never()).getProductById(anyLong());
+    }
+
+    @Test
+    void testGetProductByIdModifiedSinceETag() throws Exception {
+        productDTO.setVersion(4L);
+        when(productService.getProductVersion(1L)).thenReturn(4L);
+        when(productService.getProductById(1L)).thenReturn(productDTO);
+
+        mockMvc.perform(get("/products/1").header(HttpHeaders.IF_NONE_MATCH, "W/\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"4\""));
+    }
+
+    @Test
+    void testGetAllProductsNotModified() throws Exception {
+        productDTO.setId(1L);
+        productDTO.setVersion(0L);
+        ProductPageDTO page = new ProductPageDTO(Collections.singletonList(productDTO), null);
+        ProductPageDTO versions = new ProductPageDTO(
+                Collections.singletonList(ProductDTO.builder().id(1L).version(0L).build()), null);
+        when(productService.getAllProducts(isNull(), isNull())).thenReturn(page);
+        when(productService.getAllProductVersions(isNull(), isNull())).thenReturn(versions);
+
+        String eTag = mockMvc.perform(get("/products"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue(eTag.startsWith("W/"));
+        mockMvc.perform(get("/products").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        verify(productService, times(1)).getAllProducts(isNull(), isNull());
+        verify(productService, times(1)).getAllProductVersions(isNull(), isNull());
+    }
+
     @Test
     void testSearchProductsWithPriceRange() throws Exception {
         List<ProductDTO> productList = Collections.singletonList(productDTO);
@@ -102,6 +295,108 @@ class ProductControllerTest {
         verify(productService, times(1)).searchProducts(anyString(), isNull(), isNull());
     }
 
+    @Test
+    void testSearchProductsAsCbor() throws Exception {
+        when(productService.searchProducts("Test", null, null)).thenReturn(Collections.singletonList(productDTO));
+
+        byte[] body = mockMvc.perform(get("/products/search")
+                        .param("name", "Test")
+                        .accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(List.of(productDTO), List.of(new CBORMapper().readValue(body, ProductDTO[].class)));
+    }
+
+    @Test
+    void testSearchProductsAsSmile() throws Exception {
+        when(productService.searchProducts("Test", null, null)).thenReturn(Collections.singletonList(productDTO));
+
+        byte[] body = mockMvc.perform(get("/products/search")
+                        .param("name", "Test")
+                        .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(List.of(productDTO), List.of(new SmileMapper().readValue(body, ProductDTO[].class)));
+    }
+
+    @Test
+    void testGetFacets() throws Exception {
+        ProductFacetsDTO facets = new ProductFacetsDTO(
+                List.of(new ProductFacetsDTO.CountryFacet("PL", 3, 30)),
+                List.of(new ProductFacetsDTO.PriceBucket(null, 100.0, 1, 10),
+                        new ProductFacetsDTO.PriceBucket(100.0, null, 2, 20)));
+        when(productService.getFacets("Test", null, 150.0, List.of(100.0))).thenReturn(facets);
+
+        mockMvc.perform(get("/products/facets")
+                        .param("name", "Test")
+                        .param("maxPrice", "150")
+                        .param("priceBuckets", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.countries[0].country").value("PL"))
+                .andExpect(jsonPath("$.countries[0].totalStock").value(30))
+                .andExpect(jsonPath("$.priceBuckets.size()").value(2))
+                .andExpect(jsonPath("$.priceBuckets[1].from").value(100.0))
+                .andExpect(jsonPath("$.priceBuckets[1].count").value(2));
+    }
+
+    @Test
+    void testGetChanges() throws Exception {
+        DeferredResult<ProductChangesDTO> result = new DeferredResult<>();
+        result.setResult(new ProductChangesDTO(List.of(new ProductChangeDTO(7L, 1L, true, null)), 7L));
+        when(productChangeFeed.poll(5L, 10, Duration.ofSeconds(20))).thenReturn(result);
+
+        MvcResult mvcResult = mockMvc.perform(get("/products/changes")
+                        .param("since", "5")
+                        .param("limit", "10")
+                        .param("wait", "20"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes[0].productId").value(1))
+                .andExpect(jsonPath("$.changes[0].deleted").value(true))
+                .andExpect(jsonPath("$.nextSince").value(7));
+    }
+
+    @Test
+    void testGetChangesWithoutWait() throws Exception {
+        DeferredResult<ProductChangesDTO> result = new DeferredResult<>();
+        result.setResult(new ProductChangesDTO(List.of(), 7L));
+        when(productChangeFeed.poll(null, null, Duration.ZERO)).thenReturn(result);
+
+        MvcResult mvcResult = mockMvc.perform(get("/products/changes")).andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextSince").value(7));
+    }
+
+    @Test
+    void testGetChangesGone() throws Exception {
+        when(productChangeFeed.poll(eq(1L), isNull(), any(Duration.class))).thenThrow(new GoneException("pruned"));
+
+        mockMvc.perform(get("/products/changes").param("since", "1"))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void testStreamChangesResumesFromLastEventId() throws Exception {
+        when(productChangeFeed.subscribe(9L, null)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/products/changes")
+                        .param("since", "5")
+                        .header("Last-Event-ID", "9")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk());
+
+        verify(productChangeFeed, times(1)).subscribe(9L, null);
+    }
+
     @Test
     void testAddProduct() throws Exception {
         when(productService.saveProduct(any(ProductDTO.class))).thenReturn(productDTO);
@@ -115,17 +410,132 @@ class ProductControllerTest {
         verify(productService, times(1)).saveProduct(any(ProductDTO.class));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportProductsFromJsonArray() throws Exception {
+        List<String> names = new ArrayList<>();
+        when(productService.importProducts(any(Iterator.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, Iterator.class).forEachRemaining(p -> names.add(((ProductDTO) p).getName()));
+            return names.size();
+        });
+
+        mockMvc.perform(post("/products/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\":\"A\",\"price\":1.0},{\"name\":\"B\",\"price\":2.0}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2));
+
+        assertEquals(List.of("A", "B"), names);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportProductsFromNdjson() throws Exception {
+        List<String> names = new ArrayList<>();
+        when(productService.importProducts(any(Iterator.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, Iterator.class).forEachRemaining(p -> names.add(((ProductDTO) p).getName()));
+            return names.size();
+        });
+
+        mockMvc.perform(post("/products/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"name\":\"A\",\"price\":1.0}\n{\"name\":\"B\",\"price\":2.0}\n{\"name\":\"C\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(3));
+
+        assertEquals(List.of("A", "B", "C"), names);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportProductsMalformed() throws Exception {
+        when(productService.importProducts(any(Iterator.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, Iterator.class).forEachRemaining(p -> { });
+            return 0;
+        });
+
+        mockMvc.perform(post("/products/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"name\":\"A\"}\n{\"name\":"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testUpdateProduct() throws Exception {
-        when(productService.updateProduct(anyLong(), any(ProductDTO.class))).thenReturn(productDTO);
+        productDTO.setVersion(2L);
+        when(productService.updateProduct(anyLong(), isNull(), any(ProductDTO.class))).thenReturn(productDTO);
 
         mockMvc.perform(put("/products/1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(new ObjectMapper().writeValueAsString(productDTO)))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"2\""))
                 .andExpect(jsonPath("$.name").value("Test Product"));
 
-        verify(productService, times(1)).updateProduct(anyLong(), any(ProductDTO.class));
+        verify(productService, times(1)).updateProduct(anyLong(), isNull(), any(ProductDTO.class));
+    }
+
+    @Test
+    void testUpdateProductPreconditionFailed() throws Exception {
+        when(productService.updateProduct(eq(1L), eq(1L), any(ProductDTO.class)))
+                .thenThrow(new PreconditionFailedException("changed"));
+
+        mockMvc.perform(put("/products/1")
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(productDTO)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPatchProduct() throws Exception {
+        productDTO.setVersion(4L);
+        when(productService.patchProduct(eq(1L), eq(3L), any(Map.class))).thenReturn(productDTO);
+
+        mockMvc.perform(patch("/products/1")
+                        .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .contentType(ProductController.MERGE_PATCH_JSON_VALUE)
+                        .content("{\"price\":12.5,\"description\":null}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"4\""));
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("price", 12.5);
+        expected.put("description", null);
+        verify(productService, times(1)).patchProduct(1L, 3L, expected);
+    }
+
+    @Test
+    void testPatchProductWithForeignETag() throws Exception {
+        mockMvc.perform(patch("/products/1")
+                        .header(HttpHeaders.IF_MATCH, "W/\"5d41402abc4b2a76b9719d911017c592\"")
+                        .contentType(ProductController.MERGE_PATCH_JSON_VALUE)
+                        .content("{\"price\":12.5}"))
+                .andExpect(status().isPreconditionFailed());
+
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void testAdjustStock() throws Exception {
+        mockMvc.perform(post("/products/1/stock")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"delta\":-2}"))
+                .andExpect(status().isOk());
+
+        verify(productService, times(1)).adjustStock(1L, -2);
+    }
+
+    @Test
+    void testAdjustStockInsufficient() throws Exception {
+        doThrow(new InsufficientStockException("Not enough stock")).when(productService).adjustStock(1L, -20);
+
+        mockMvc.perform(post("/products/1/stock")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"delta\":-20}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Not enough stock"));
     }
 
     @Test
@@ -138,4 +548,27 @@ class ProductControllerTest {
 
         verify(productService, times(1)).deleteProduct(anyLong());
     }
+
+    @Test
+    void testUpdateProductsByCriteria() throws Exception {
+        when(productService.updateProducts(null, "PL", 1.0, null, new ProductBulkUpdateDTO(1.1, null)))
+                .thenReturn(42L);
+
+        mockMvc.perform(patch("/products/bulk").param("country", "PL").param("minPrice", "1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"priceMultiplier\": 1.1}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(42));
+    }
+
+    @Test
+    void testDeleteProductsByCriteria() throws Exception {
+        when(productService.deleteProducts("apple", null, null, 2.0)).thenReturn(3L);
+
+        mockMvc.perform(delete("/products/bulk").param("name", "apple").param("maxPrice", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(3));
+
+        verify(productService, never()).deleteProduct(anyLong());
+    }
 }
@@ -0,0 +1,56 @@
+package com.eva.test.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class GatedDataSourceTest {
+
+    private DataSource targetDataSource;
+    private GatedDataSource gatedDataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        targetDataSource = mock(DataSource.class);
+        when(targetDataSource.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        gatedDataSource = new GatedDataSource(targetDataSource, 2, Duration.ofMillis(50));
+    }
+
+    @Test
+    void testCheckoutsBeyondPermitsTimeOut() throws SQLException {
+        Connection first = gatedDataSource.getConnection();
+        gatedDataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, gatedDataSource::getConnection);
+        first.close();
+        assertNotNull(gatedDataSource.getConnection());
+        verify(targetDataSource, times(3)).getConnection();
+    }
+
+    @Test
+    void testCloseReleasesPermitOnlyOnce() throws SQLException {
+        Connection connection = gatedDataSource.getConnection();
+
+        connection.close();
+        connection.close();
+
+        assertEquals(2, gatedDataSource.availablePermits());
+    }
+
+    @Test
+    void testFailedCheckoutReleasesPermit() throws SQLException {
+        when(targetDataSource.getConnection()).thenThrow(new SQLException("pool exhausted"));
+
+        assertThrows(SQLException.class, gatedDataSource::getConnection);
+
+        assertEquals(2, gatedDataSource.availablePermits());
+    }
+}
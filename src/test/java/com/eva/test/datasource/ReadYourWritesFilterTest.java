@@ -0,0 +1,91 @@
+package com.eva.test.datasource;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReadYourWritesFilterTest {
+
+    private DataSource primary;
+    private ReadYourWritesFilter filter;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = mock(DataSource.class);
+        when(primary.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        filter = new ReadYourWritesFilter(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testWriteSetsPrimaryCookie() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        long before = System.currentTimeMillis();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/products"), response, (req, res) -> { });
+
+        Cookie cookie = response.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        assertNotNull(cookie);
+        assertEquals(5, cookie.getMaxAge());
+        assertTrue(Long.parseLong(cookie.getValue()) >= before + 5000);
+    }
+
+    @Test
+    void testLookupDoesNotSetPrimaryCookie() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/products/lookup"), response, (req, res) -> { });
+
+        assertNull(response.getCookie(ReadYourWritesFilter.COOKIE_NAME));
+    }
+
+    @Test
+    void testReadWithinWindowIsPinnedToPrimary() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products/1");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME,
+                Long.toString(System.currentTimeMillis() + 5000)));
+        ReplicaPool replicaPool = mock(ReplicaPool.class);
+        DataSource routing = new ReplicaRoutingDataSource(primary, replicaPool);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            try {
+                routing.getConnection();
+            } catch (SQLException ex) {
+                fail(ex);
+            }
+        });
+        routing.getConnection();
+
+        verify(primary, times(2)).getConnection();
+        // Only the read after the filter returned asked for a replica.
+        verify(replicaPool, times(1)).getConnection();
+    }
+
+    @Test
+    void testReadAfterWindowIsNotPinned() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products/1");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME,
+                Long.toString(System.currentTimeMillis() - 1)));
+        ReplicaPool replicaPool = mock(ReplicaPool.class);
+        DataSource routing = new ReplicaRoutingDataSource(primary, replicaPool);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            try {
+                routing.getConnection();
+            } catch (SQLException ex) {
+                fail(ex);
+            }
+        });
+
+        verify(replicaPool).getConnection();
+    }
+}
@@ -0,0 +1,153 @@
+package com.eva.test.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private Connection primaryConnection;
+    private DataSource firstReplica;
+    private DataSource secondReplica;
+    private ReplicaPool replicaPool;
+    private DataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = mock(DataSource.class);
+        primaryConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        firstReplica = replica(0.0);
+        secondReplica = replica(0.0);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("first", firstReplica);
+        replicas.put("second", secondReplica);
+        replicaPool = new ReplicaPool(replicas, Duration.ofSeconds(5), Duration.ofSeconds(10));
+        routing = ReplicaRoutingDataSource.routing(primary, replicaPool);
+        // The proxy reads the primary's auto-commit and isolation defaults from one connection, once.
+        routing.getConnection().getAutoCommit();
+        clearInvocations(primary, primaryConnection);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingDataSource.pinToPrimary(false);
+    }
+
+    @Test
+    void testReadOnlyConnectionsAlternateBetweenHealthyReplicas() throws SQLException {
+        replicaPool.checkHealth();
+
+        readOnlyQuery();
+        readOnlyQuery();
+
+        // One connection for the health check, one for the query.
+        verify(firstReplica, times(2)).getConnection();
+        verify(secondReplica, times(2)).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void testWritesGoToPrimary() throws SQLException {
+        replicaPool.checkHealth();
+
+        try (Connection connection = routing.getConnection()) {
+            connection.createStatement();
+        }
+
+        verify(primary).getConnection();
+        verify(firstReplica, times(1)).getConnection();
+        verify(secondReplica, times(1)).getConnection();
+    }
+
+    @Test
+    void testReadsFallBackToPrimaryUntilReplicasAreChecked() throws SQLException {
+        readOnlyQuery();
+
+        verify(primary).getConnection();
+        verify(primaryConnection).setReadOnly(true);
+        verifyNoInteractions(firstReplica, secondReplica);
+    }
+
+    @Test
+    void testReplicaRefusingConnectionsLeavesRotation() throws SQLException {
+        replicaPool.checkHealth();
+        when(firstReplica.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        readOnlyQuery();
+
+        assertEquals(1, replicaPool.healthyReplicas());
+        verify(secondReplica, times(2)).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void testLaggingReplicaLeavesRotation() throws SQLException {
+        replicaPool.checkHealth();
+        DataSource lagging = replica(30.0);
+        when(firstReplica.getConnection()).then(invocation -> lagging.getConnection());
+
+        replicaPool.checkHealth();
+
+        assertEquals(1, replicaPool.healthyReplicas());
+    }
+
+    @Test
+    void testPinnedThreadReadsFromPrimary() throws SQLException {
+        replicaPool.checkHealth();
+        ReplicaRoutingDataSource.pinToPrimary(true);
+
+        readOnlyQuery();
+
+        verify(primary).getConnection();
+        verify(firstReplica, times(1)).getConnection();
+        verify(secondReplica, times(1)).getConnection();
+    }
+
+    @Test
+    void testOnPrimaryRestoresPreviousPinning() {
+        assertTrue(ReplicaRoutingDataSource.onPrimary(ReplicaRoutingDataSource::isPinnedToPrimary));
+        assertFalse(ReplicaRoutingDataSource.isPinnedToPrimary());
+
+        ReplicaRoutingDataSource.pinToPrimary(true);
+        ReplicaRoutingDataSource.onPrimary(() -> null);
+
+        assertTrue(ReplicaRoutingDataSource.isPinnedToPrimary());
+    }
+
+    private void readOnlyQuery() throws SQLException {
+        try (Connection connection = routing.getConnection()) {
+            connection.setReadOnly(true);
+            connection.createStatement();
+        }
+    }
+
+    private static DataSource replica(double lagSeconds) throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getDouble(1)).thenReturn(lagSeconds);
+        Statement statement = mock(Statement.class);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenAnswer(invocation -> {
+            Connection connection = mock(Connection.class);
+            when(connection.createStatement()).thenReturn(statement);
+            return connection;
+        });
+        return dataSource;
+    }
+}
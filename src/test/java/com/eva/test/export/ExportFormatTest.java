@@ -0,0 +1,40 @@
+package com.eva.test.export;
+
+import com.eva.test.dto.ProductDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportFormatTest {
+
+    @ParameterizedTest
+    @EnumSource(ExportFormat.class)
+    void testFlushesOnlyWhenClosed(ExportFormat format) throws IOException {
+        FlushCountingStream out = new FlushCountingStream();
+
+        try (ProductExportWriter writer = format.open(out, new ObjectMapper())) {
+            for (long id = 1; id <= 100; id++) {
+                writer.write(ProductDTO.builder().id(id).name("Product " + id).price(1.5).quantity(2).build());
+            }
+            assertEquals(0, out.flushes);
+        }
+
+        assertTrue(out.size() > 0);
+        assertTrue(out.toString().contains("Product 100"));
+    }
+
+    private static class FlushCountingStream extends ByteArrayOutputStream {
+        private int flushes;
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.eva.test.limit;
+
+import com.eva.test.config.ProductProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private ProductProperties.Limiter properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ProductProperties().getLimiter();
+        properties.setInitialLimit(10);
+        properties.setMinLimit(2);
+        properties.setMaxLimit(100);
+    }
+
+    @Test
+    void testShedsBeyondLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, clock::get);
+
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(limiter, EndpointClass.READS, 10);
+
+        assertEquals(10, permits.size());
+        assertNull(limiter.tryAcquire(EndpointClass.READS));
+        permits.get(0).succeeded();
+        assertNotNull(limiter.tryAcquire(EndpointClass.READS));
+    }
+
+    @Test
+    void testWritesKeepTheirShareWhenReadsFillTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, clock::get);
+        acquire(limiter, EndpointClass.READS, 10);
+
+        // Half of the limit is reserved for writes; search has its own 20%.
+        assertEquals(5, acquire(limiter, EndpointClass.WRITES, 10).size());
+        assertEquals(2, acquire(limiter, EndpointClass.SEARCH, 10).size());
+        assertNull(limiter.tryAcquire(EndpointClass.READS));
+        assertEquals(5, limiter.getInFlight(EndpointClass.WRITES));
+    }
+
+    @Test
+    void testSlowRequestsShrinkLimitOncePerRound() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, clock::get);
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(limiter, EndpointClass.READS, 10);
+
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::succeeded);
+
+        assertEquals(9, limiter.getLimit());
+
+        // The next round finishes slow too and shrinks the limit again.
+        permits = acquire(limiter, EndpointClass.READS, 9);
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::succeeded);
+
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void testDroppedRequestShrinksLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, clock::get);
+
+        limiter.tryAcquire(EndpointClass.WRITES).dropped();
+
+        assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    void testLimitNeverShrinksBelowMinimum() {
+        properties.setBackoffRatio(0.1);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, clock::get);
+
+        limiter.tryAcquire(EndpointClass.WRITES).dropped();
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void testFastRequestsGrowLimitOnlyUnderLoad() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, clock::get);
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire(EndpointClass.READS).succeeded();
+        }
+        assertEquals(10, limiter.getLimit());
+
+        for (int round = 0; round < 3; round++) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(limiter, EndpointClass.READS, 100);
+            clock.addAndGet(Duration.ofMillis(10).toNanos());
+            permits.forEach(AdaptiveConcurrencyLimiter.Permit::succeeded);
+        }
+
+        // About one more per round of a full limit's worth.
+        assertEquals(11, limiter.getLimit());
+    }
+
+    @Test
+    void testIgnoredRequestLeavesLimitAlone() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, clock::get);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire(EndpointClass.READS);
+
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+        permit.ignored();
+        permit.dropped();
+
+        assertEquals(10, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight(EndpointClass.READS));
+    }
+
+    private static List<AdaptiveConcurrencyLimiter.Permit> acquire(AdaptiveConcurrencyLimiter limiter,
+                                                                  EndpointClass endpointClass, int count) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire(endpointClass);
+            if (permit != null) {
+                permits.add(permit);
+            }
+        }
+        return permits;
+    }
+}
@@ -0,0 +1,96 @@
+package com.eva.test.limit;
+
+import com.eva.test.config.ProductProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+    private AdaptiveConcurrencyLimiter limiter;
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        ProductProperties.Limiter properties = new ProductProperties().getLimiter();
+        properties.setInitialLimit(1);
+        properties.setMinLimit(1);
+        limiter = new AdaptiveConcurrencyLimiter(properties);
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new ConcurrencyLimitFilter(limiter, new ObjectMapper(), meterRegistry, Duration.ofSeconds(2));
+    }
+
+    @Test
+    void testClassifiesRequests() {
+        assertEquals(EndpointClass.READS, ConcurrencyLimitFilter.classify("GET", "/products"));
+        assertEquals(EndpointClass.READS, ConcurrencyLimitFilter.classify("GET", "/products/1"));
+        assertEquals(EndpointClass.SEARCH, ConcurrencyLimitFilter.classify("GET", "/products/search"));
+        assertEquals(EndpointClass.SEARCH, ConcurrencyLimitFilter.classify("GET", "/products/facets"));
+        assertEquals(EndpointClass.WRITES, ConcurrencyLimitFilter.classify("POST", "/products/1/stock"));
+        assertEquals(EndpointClass.WRITES, ConcurrencyLimitFilter.classify("PATCH", "/products/1"));
+        assertEquals(EndpointClass.READS, ConcurrencyLimitFilter.classify("POST", "/products/lookup"));
+    }
+
+    @Test
+    void testShedsRequestsBeyondLimitWithRetryAfter() throws Exception {
+        // Fills the limit and the reads' share of it.
+        limiter.tryAcquire(EndpointClass.READS);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/products"), response, chain);
+
+        assertEquals(503, response.getStatus());
+        assertEquals("2", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(response.getContentAsString().contains("\"statusCode\":503"));
+        assertNull(chain.getRequest());
+        assertEquals(1, meterRegistry.get("products.limiter.rejected").tag("class", "reads").counter().count());
+    }
+
+    @Test
+    void testAdmitsWritesWithinTheirShare() throws Exception {
+        limiter.tryAcquire(EndpointClass.READS);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/products"), response, chain);
+
+        assertEquals(200, response.getStatus());
+        assertNotNull(chain.getRequest());
+        assertEquals(0, limiter.getInFlight(EndpointClass.WRITES));
+    }
+
+    @Test
+    void testChangeFeedIsNotLimited() throws Exception {
+        limiter.tryAcquire(EndpointClass.READS);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/products/changes"), new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void testServiceUnavailableFromDownstreamShrinksLimit() throws Exception {
+        ProductProperties.Limiter properties = new ProductProperties().getLimiter();
+        limiter = new AdaptiveConcurrencyLimiter(properties);
+        filter = new ConcurrencyLimitFilter(limiter, new ObjectMapper(), meterRegistry, Duration.ofSeconds(1));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/products/1"), response,
+                (request, servletResponse) -> response.setStatus(503));
+
+        assertEquals(properties.getInitialLimit() - 2, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight(EndpointClass.READS));
+    }
+}
@@ -0,0 +1,141 @@
+package com.eva.test.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What one arrival rate measured. Latencies are in microseconds from the time a request was
+ * due, so a request held back by a stalled client counts its wait as well. The histograms hold
+ * the responses that succeeded and the requests that timed out or were dropped: at saturation
+ * those are the slowest ones, and leaving them out would hide the tail. Shed requests and error
+ * statuses are only counted: they answer fast and would flatter the histograms.
+ */
+final class LevelResult {
+    private final int targetRate;
+    private final Duration duration;
+    private final Map<Operation, OperationStats> operations = new EnumMap<>(Operation.class);
+
+    LevelResult(int targetRate, Duration duration) {
+        this.targetRate = targetRate;
+        this.duration = duration;
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new OperationStats());
+        }
+    }
+
+    void completed(Operation operation, long dueNanos, long completedNanos, int status) {
+        OperationStats stats = operations.get(operation);
+        if (status >= 200 && status < 300) {
+            stats.histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(completedNanos - dueNanos));
+            stats.succeeded.increment();
+        } else if (status == 503) {
+            stats.shed.increment();
+        } else {
+            stats.failed.increment();
+        }
+    }
+
+    /**
+     * Timed out or got no response, recorded at the time the client gave up on it.
+     */
+    void failed(Operation operation, long dueNanos, long failedNanos) {
+        OperationStats stats = operations.get(operation);
+        stats.histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(failedNanos - dueNanos));
+        stats.failed.increment();
+    }
+
+    /**
+     * Not sent because too many requests were still waiting for a response. Recorded as if it had
+     * timed out, which is the least it would have taken behind all of them.
+     */
+    void dropped(Operation operation, Duration timeout) {
+        OperationStats stats = operations.get(operation);
+        stats.histogram.recordValue(timeout.toNanos() / 1000);
+        stats.dropped.increment();
+    }
+
+    int targetRate() {
+        return targetRate;
+    }
+
+    Duration duration() {
+        return duration;
+    }
+
+    Map<Operation, OperationStats> operations() {
+        return operations;
+    }
+
+    OperationStats total() {
+        OperationStats total = new OperationStats();
+        for (OperationStats stats : operations.values()) {
+            total.histogram.add(stats.histogram);
+            total.succeeded.add(stats.succeeded.sum());
+            total.shed.add(stats.shed.sum());
+            total.failed.add(stats.failed.sum());
+            total.dropped.add(stats.dropped.sum());
+        }
+        return total;
+    }
+
+    double achievedRate() {
+        return total().succeeded() / (duration.toNanos() / 1e9);
+    }
+
+    static final class OperationStats {
+        private final Histogram histogram = new ConcurrentHistogram(3);
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+
+        Histogram histogram() {
+            return histogram;
+        }
+
+        long succeeded() {
+            return succeeded.sum();
+        }
+
+        long shed() {
+            return shed.sum();
+        }
+
+        long failed() {
+            return failed.sum();
+        }
+
+        long dropped() {
+            return dropped.sum();
+        }
+
+        long sent() {
+            return succeeded() + shed() + failed();
+        }
+
+        /**
+         * Percent of the requests due that timed out or failed.
+         */
+        double failedPercent() {
+            return percentOfDue(failed());
+        }
+
+        /**
+         * Percent of the requests due that were dropped.
+         */
+        double droppedPercent() {
+            return percentOfDue(dropped());
+        }
+
+        private double percentOfDue(long count) {
+            long due = sent() + dropped();
+            return due == 0 ? 0 : count * 100.0 / due;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.eva.test.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Command line of the load test: {@code --name=value} options of the harness; every other
+ * argument is handed to the application, so {@code --spring.profiles.active=virtual-threads} or
+ * {@code --products.cache.enabled=false} select what is measured.
+ */
+record LoadTestOptions(List<Integer> rates,
+                       Duration duration,
+                       Duration warmup,
+                       int catalogSize,
+                       Map<Operation, Integer> mix,
+                       long seed,
+                       Duration timeout,
+                       int maxInFlight,
+                       String dbServer,
+                       String dbName,
+                       String dbUsername,
+                       String dbPassword,
+                       Path results,
+                       List<Path> compare,
+                       List<String> appArgs) {
+    private static final Pattern DATABASE_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final Map<String, String> DEFAULTS = defaults();
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>(DEFAULTS);
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String name = arg.startsWith("--") && separator > 2 ? arg.substring(2, separator) : null;
+            if (name != null && DEFAULTS.containsKey(name)) {
+                values.put(name, arg.substring(separator + 1));
+            } else {
+                appArgs.add(arg);
+            }
+        }
+        LoadTestOptions options = new LoadTestOptions(
+                Arrays.stream(values.get("rates").split(",")).map(String::trim).map(Integer::valueOf).toList(),
+                DurationStyle.detectAndParse(values.get("duration")),
+                DurationStyle.detectAndParse(values.get("warmup")),
+                Integer.parseInt(values.get("catalog-size")),
+                parseMix(values.get("mix")),
+                Long.parseLong(values.get("seed")),
+                DurationStyle.detectAndParse(values.get("timeout")),
+                Integer.parseInt(values.get("max-in-flight")),
+                values.get("db-server"),
+                values.get("db-name"),
+                values.get("db-username"),
+                values.get("db-password"),
+                Path.of(values.get("results")),
+                values.get("compare").isBlank() ? List.of()
+                        : Arrays.stream(values.get("compare").split(",")).map(String::trim).map(Path::of).toList(),
+                List.copyOf(appArgs));
+        options.validate();
+        return options;
+    }
+
+    /**
+     * The harness options as given, for the record of a run.
+     */
+    Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("rates", rates);
+        description.put("duration", duration.toString());
+        description.put("warmup", warmup.toString());
+        description.put("catalogSize", catalogSize);
+        Map<String, Integer> mixByKey = new LinkedHashMap<>();
+        mix.forEach((operation, weight) -> mixByKey.put(operation.key(), weight));
+        description.put("mix", mixByKey);
+        description.put("seed", seed);
+        description.put("timeout", timeout.toString());
+        description.put("maxInFlight", maxInFlight);
+        description.put("appArgs", appArgs);
+        return description;
+    }
+
+    private void validate() {
+        if (rates.isEmpty() || rates.stream().anyMatch(rate -> rate <= 0)) {
+            throw new IllegalArgumentException("Rates must be positive: " + rates);
+        }
+        if (!duration.isPositive() || warmup.isNegative() || !timeout.isPositive()) {
+            throw new IllegalArgumentException("Duration and timeout must be positive, warmup not negative");
+        }
+        if (catalogSize <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Catalog size and max in flight must be positive");
+        }
+        // Deletes remove products the run created, so creates have to keep up with them.
+        if (mix.getOrDefault(Operation.DELETE, 0) > mix.getOrDefault(Operation.CREATE, 0)) {
+            throw new IllegalArgumentException("The mix must create at least as many products as it deletes");
+        }
+        if (!DATABASE_NAME.matcher(dbName).matches()) {
+            throw new IllegalArgumentException("Invalid database name: " + dbName);
+        }
+        if (!compare.isEmpty() && compare.size() != 2) {
+            throw new IllegalArgumentException("Compare takes exactly two result directories");
+        }
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Invalid mix weight: " + entry);
+            }
+            if (weight > 0) {
+                mix.put(Operation.fromKey(parts[0].trim()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no operations");
+        }
+        return mix;
+    }
+
+    private static Map<String, String> defaults() {
+        Map<String, String> defaults = new HashMap<>();
+        defaults.put("rates", "100,200,400,800");
+        defaults.put("duration", "30s");
+        defaults.put("warmup", "10s");
+        defaults.put("catalog-size", "100000");
+        defaults.put("mix", "get=50,search=15,list=15,create=8,update=8,delete=4");
+        defaults.put("seed", "42");
+        defaults.put("timeout", "10s");
+        defaults.put("max-in-flight", "5000");
+        defaults.put("db-server", "jdbc:postgresql://localhost:5432/");
+        defaults.put("db-name", "products_loadtest");
+        defaults.put("db-username", "postgres");
+        defaults.put("db-password", "postgres");
+        defaults.put("results", "loadtest-results");
+        defaults.put("compare", "");
+        return Map.copyOf(defaults);
+    }
+}
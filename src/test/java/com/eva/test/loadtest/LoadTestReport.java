@@ -0,0 +1,169 @@
+package com.eva.test.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Files of a run, in a directory named after its start and commit:
+ * <ul>
+ *     <li>{@code summary.json}: options, commit and, per arrival rate, throughput, percentiles
+ *     and status counts overall and per operation; what {@code --compare} reads;</li>
+ *     <li>{@code curve.csv}: throughput against latency, one row per arrival rate, with the
+ *     percent of requests that failed or were dropped beside the percentiles they are part of;</li>
+ *     <li>{@code rate-<rate>/<operation>.hgrm}: HdrHistogram percentile distributions in
+ *     milliseconds, for HdrHistogram's plotter.</li>
+ * </ul>
+ */
+final class LoadTestReport {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final ObjectMapper objectMapper;
+
+    LoadTestReport(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    void write(Path directory, String commit, Instant startedAt, Map<String, Object> options,
+               List<LevelResult> levels) throws IOException {
+        Files.createDirectories(directory);
+        ObjectNode summary = objectMapper.createObjectNode();
+        summary.put("commit", commit);
+        summary.put("startedAt", startedAt.toString());
+        summary.put("java", Runtime.version().toString());
+        summary.set("options", objectMapper.valueToTree(options));
+        ArrayNode levelNodes = summary.putArray("levels");
+        List<String> curve = new ArrayList<>();
+        curve.add("target_rate,achieved_rate,succeeded,shed,failed,dropped,failed_pct,dropped_pct,"
+                + "p50_ms,p90_ms,p99_ms,p99_9_ms,max_ms");
+        for (LevelResult level : levels) {
+            LevelResult.OperationStats total = level.total();
+            ObjectNode levelNode = levelNodes.addObject();
+            levelNode.put("targetRate", level.targetRate());
+            levelNode.put("achievedRate", level.achievedRate());
+            levelNode.set("total", stats(total));
+            ObjectNode operationNodes = levelNode.putObject("operations");
+            Path histograms = directory.resolve("rate-" + level.targetRate());
+            Files.createDirectories(histograms);
+            writeHistogram(histograms.resolve("all.hgrm"), total.histogram());
+            level.operations().forEach((operation, stats) -> {
+                if (stats.sent() + stats.dropped() > 0) {
+                    operationNodes.set(operation.key(), stats(stats));
+                    writeHistogram(histograms.resolve(operation.key() + ".hgrm"), stats.histogram());
+                }
+            });
+            Histogram histogram = total.histogram();
+            curve.add(String.format(Locale.ROOT, "%d,%.1f,%d,%d,%d,%d,%.2f,%.2f,%.3f,%.3f,%.3f,%.3f,%.3f",
+                    level.targetRate(), level.achievedRate(), total.succeeded(), total.shed(), total.failed(),
+                    total.dropped(), total.failedPercent(), total.droppedPercent(), millis(histogram, 50), millis(histogram, 90), millis(histogram, 99),
+                    millis(histogram, 99.9), histogram.getMaxValue() / MICROS_PER_MILLI));
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(directory.resolve("summary.json").toFile(), summary);
+        Files.write(directory.resolve("curve.csv"), curve);
+    }
+
+    /**
+     * Prints the throughput-latency curve of a run.
+     */
+    void print(Path directory, PrintStream out) throws IOException {
+        JsonNode summary = objectMapper.readTree(directory.resolve("summary.json").toFile());
+        out.printf("%s (%s)%n", directory, summary.path("commit").asText());
+        out.printf(Locale.ROOT, "%8s %10s %9s %9s %9s %9s %9s %7s %9s %10s%n",
+                "rate", "achieved", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "shed", "failed %", "dropped %");
+        for (JsonNode level : summary.path("levels")) {
+            JsonNode total = level.path("total");
+            JsonNode latency = total.path("latencyMs");
+            out.printf(Locale.ROOT, "%8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %7d %9.2f %10.2f%n",
+                    level.path("targetRate").asInt(), level.path("achievedRate").asDouble(),
+                    latency.path("p50").asDouble(), latency.path("p90").asDouble(), latency.path("p99").asDouble(),
+                    latency.path("p99.9").asDouble(), latency.path("max").asDouble(),
+                    total.path("shed").asLong(), total.path("failedPct").asDouble(),
+                    total.path("droppedPct").asDouble());
+        }
+    }
+
+    /**
+     * Prints the rates both runs measured side by side, {@code baseline -> candidate}, with the
+     * change in percent.
+     */
+    void compare(Path baseline, Path candidate, PrintStream out) throws IOException {
+        JsonNode before = objectMapper.readTree(baseline.resolve("summary.json").toFile());
+        JsonNode after = objectMapper.readTree(candidate.resolve("summary.json").toFile());
+        out.printf("%s (%s) -> %s (%s)%n", baseline, before.path("commit").asText(),
+                candidate, after.path("commit").asText());
+        out.printf("%8s %24s %24s %24s %24s%n", "rate", "achieved", "p50 ms", "p99 ms", "p99.9 ms");
+        for (JsonNode level : before.path("levels")) {
+            int rate = level.path("targetRate").asInt();
+            JsonNode other = findLevel(after, rate);
+            if (other == null) {
+                continue;
+            }
+            JsonNode latency = level.path("total").path("latencyMs");
+            JsonNode otherLatency = other.path("total").path("latencyMs");
+            out.printf("%8d %24s %24s %24s %24s%n", rate,
+                    change(level.path("achievedRate").asDouble(), other.path("achievedRate").asDouble()),
+                    change(latency.path("p50").asDouble(), otherLatency.path("p50").asDouble()),
+                    change(latency.path("p99").asDouble(), otherLatency.path("p99").asDouble()),
+                    change(latency.path("p99.9").asDouble(), otherLatency.path("p99.9").asDouble()));
+        }
+    }
+
+    private ObjectNode stats(LevelResult.OperationStats stats) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("succeeded", stats.succeeded());
+        node.put("shed", stats.shed());
+        node.put("failed", stats.failed());
+        node.put("dropped", stats.dropped());
+        node.put("failedPct", stats.failedPercent());
+        node.put("droppedPct", stats.droppedPercent());
+        Histogram histogram = stats.histogram();
+        ObjectNode latency = node.putObject("latencyMs");
+        latency.put("mean", histogram.getMean() / MICROS_PER_MILLI);
+        for (double percentile : PERCENTILES) {
+            latency.put("p" + (percentile % 1 == 0 ? Integer.toString((int) percentile) : Double.toString(percentile)),
+                    millis(histogram, percentile));
+        }
+        latency.put("max", histogram.getMaxValue() / MICROS_PER_MILLI);
+        return node;
+    }
+
+    private static void writeHistogram(Path file, Histogram histogram) {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    private static JsonNode findLevel(JsonNode summary, int rate) {
+        for (JsonNode level : summary.path("levels")) {
+            if (level.path("targetRate").asInt() == rate) {
+                return level;
+            }
+        }
+        return null;
+    }
+
+    private static String change(double before, double after) {
+        String percent = before == 0 ? "n/a" : String.format(Locale.ROOT, "%+.1f%%", (after - before) / before * 100);
+        return String.format(Locale.ROOT, "%.2f -> %.2f (%s)", before, after, percent);
+    }
+}
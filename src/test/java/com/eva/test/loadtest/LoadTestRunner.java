@@ -0,0 +1,116 @@
+package com.eva.test.loadtest;
+
+import com.eva.test.TestApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry point of the {@code loadtest} Maven profile. Recreates the load-test database, starts
+ * the application on it, whose Flyway applies the schema migrations and the seed catalog of
+ * {@code --catalog-size} products from {@code db/loadtest}, then drives the mixed workload at
+ * each of {@code --rates} in turn, after a warmup at that rate, over real HTTP. Results are
+ * saved per run for {@code --compare}, see {@link LoadTestReport}.
+ * <p>
+ * The client shares the JVM, and so the CPU, with the application: compare runs made on the
+ * same machine, not absolute numbers.
+ */
+public final class LoadTestRunner {
+    private static final DateTimeFormatter RUN_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")
+            .withZone(ZoneId.systemDefault());
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ObjectMapper objectMapper = new ObjectMapper();
+        LoadTestReport report = new LoadTestReport(objectMapper);
+        if (!options.compare().isEmpty()) {
+            report.compare(options.compare().get(0), options.compare().get(1), System.out);
+            return;
+        }
+        Instant startedAt = Instant.now();
+        String commit = commit();
+        recreateDatabase(options);
+        List<LevelResult> levels = new ArrayList<>();
+        try (ConfigurableApplicationContext context = SpringApplication.run(TestApplication.class, appArgs(options));
+             // Its default executor keeps responses off the virtual-thread scheduler the application may use.
+             HttpClient client = HttpClient.newBuilder()
+                     .connectTimeout(options.timeout())
+                     .build()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            Workload workload = new Workload(URI.create("http://localhost:" + port), options.catalogSize(),
+                    options.mix(), options.timeout(), objectMapper);
+            OpenModelDriver driver = new OpenModelDriver(client, workload, options.timeout(), options.maxInFlight());
+            for (int rate : options.rates()) {
+                System.out.printf("Rate %d/s: warming up for %s, measuring for %s%n",
+                        rate, options.warmup(), options.duration());
+                if (options.warmup().isPositive()) {
+                    // Another sequence, so the measured requests do not find exactly their products cached.
+                    workload.reset(~options.seed());
+                    driver.run(rate, options.warmup());
+                }
+                workload.reset(options.seed());
+                levels.add(driver.run(rate, options.duration()));
+            }
+        }
+        Path directory = options.results().resolve(RUN_NAME.format(startedAt) + "-" + commit);
+        report.write(directory, commit, startedAt, options.describe(), levels);
+        report.print(directory, System.out);
+        // The application's non-daemon threads would keep the JVM alive.
+        System.exit(0);
+    }
+
+    private static String[] appArgs(LoadTestOptions options) {
+        List<String> appArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=" + options.dbServer() + options.dbName() + "?reWriteBatchedInserts=true",
+                "--spring.datasource.username=" + options.dbUsername(),
+                "--spring.datasource.password=" + options.dbPassword(),
+                "--spring.flyway.locations=classpath:db/migration,classpath:db/loadtest",
+                "--spring.flyway.placeholders.catalogSize=" + options.catalogSize()));
+        // Last, so they can override the above.
+        appArgs.addAll(options.appArgs());
+        return appArgs.toArray(String[]::new);
+    }
+
+    /**
+     * Drops the load-test database with whatever a previous run left in it and creates it empty.
+     */
+    private static void recreateDatabase(LoadTestOptions options) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(options.dbServer() + "postgres",
+                options.dbUsername(), options.dbPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + options.dbName() + " WITH (FORCE)");
+            statement.execute("CREATE DATABASE " + options.dbName());
+        }
+    }
+
+    /**
+     * The commit the run measured, marked dirty when the working tree has changes.
+     */
+    private static String commit() throws IOException, InterruptedException {
+        Process process = new ProcessBuilder("git", "describe", "--always", "--dirty")
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+        return process.waitFor() == 0 && !output.isEmpty() ? output : "unknown";
+    }
+}
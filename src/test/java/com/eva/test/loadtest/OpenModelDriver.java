@@ -0,0 +1,77 @@
+package com.eva.test.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a fixed arrival rate whatever the responses do: the n-th request is due at
+ * {@code n / rate} and goes out then, not when an earlier one answers, so a slow server gets a
+ * growing queue instead of a slower client. Its latency is taken from the time it was due, which
+ * keeps a pause in the client from hiding the requests that piled up behind it.
+ */
+final class OpenModelDriver {
+    private final HttpClient client;
+    private final Workload workload;
+    private final Duration timeout;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenModelDriver(HttpClient client, Workload workload, Duration timeout, int maxInFlight) {
+        this.client = client;
+        this.workload = workload;
+        this.timeout = timeout;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Sends {@code rate} requests a second for {@code duration} and returns once every one of them
+     * has answered or timed out.
+     */
+    LevelResult run(int rate, Duration duration) throws InterruptedException {
+        LevelResult result = new LevelResult(rate, duration);
+        long start = System.nanoTime();
+        long requests = duration.toNanos() * rate / TimeUnit.SECONDS.toNanos(1);
+        for (long n = 0; n < requests; n++) {
+            long due = start + n * TimeUnit.SECONDS.toNanos(1) / rate;
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            send(workload.next(), due, result);
+        }
+        awaitResponses();
+        return result;
+    }
+
+    private void send(Workload.Request request, long due, LevelResult result) {
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            result.dropped(request.operation(), timeout);
+            return;
+        }
+        client.sendAsync(request.httpRequest(), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, ex) -> {
+                    try {
+                        if (ex != null) {
+                            result.failed(request.operation(), due, System.nanoTime());
+                        } else {
+                            result.completed(request.operation(), due, System.nanoTime(), response.statusCode());
+                            workload.completed(request, response.statusCode(), response.body());
+                        }
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+    }
+
+    private void awaitResponses() throws InterruptedException {
+        // Every request gives up after the timeout; the margin covers its connection setup.
+        long deadline = System.nanoTime() + timeout.multipliedBy(2).toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.eva.test.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Request types of the load-test workload, keyed by the name used in {@code --mix}.
+ */
+enum Operation {
+    GET("get"),
+    SEARCH("search"),
+    LIST("list"),
+    CREATE("create"),
+    UPDATE("update"),
+    DELETE("delete");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    String key() {
+        return key;
+    }
+
+    static Operation fromKey(String key) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation: " + key));
+    }
+}
@@ -0,0 +1,140 @@
+package com.eva.test.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The request mix, drawn from a seeded random so every run sends the same sequence. Reads and
+ * updates spread uniformly over the seeded catalog, which is never deleted from; deletes take the
+ * oldest product the run itself created.
+ * <p>
+ * {@link #next()} is only called from the thread that paces the requests;
+ * {@link #completed} from whichever thread receives a response.
+ */
+final class Workload {
+    // The vocabulary of the seeded names, see db/loadtest.
+    private static final String[] WORDS = {"apple", "banana", "cherry", "milk", "bread", "cheese",
+            "coffee", "tea", "juice", "butter", "yogurt", "honey", "rice", "pasta", "salt", "sugar"};
+    private static final int LIST_LIMIT = 50;
+
+    private final URI baseUri;
+    private final int catalogSize;
+    private final Duration timeout;
+    private final ObjectMapper objectMapper;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final Queue<Long> createdIds = new ConcurrentLinkedQueue<>();
+    private SplittableRandom random;
+    private long created;
+
+    Workload(URI baseUri, int catalogSize, Map<Operation, Integer> mix, Duration timeout, ObjectMapper objectMapper) {
+        this.baseUri = baseUri;
+        this.catalogSize = catalogSize;
+        this.timeout = timeout;
+        this.objectMapper = objectMapper;
+        this.operations = mix.keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Starts the sequence over, so every rate level sends the same requests.
+     */
+    void reset(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    Request next() {
+        Operation operation = pick();
+        return switch (operation) {
+            case GET -> new Request(operation, get("/products/" + catalogId()));
+            case SEARCH -> {
+                int minPrice = random.nextInt(90);
+                yield new Request(operation, get("/products/search?name=" + WORDS[random.nextInt(WORDS.length)]
+                        + "&minPrice=" + minPrice + "&maxPrice=" + (minPrice + 10)));
+            }
+            case LIST -> new Request(operation, get("/products?after=" + random.nextInt(catalogSize)
+                    + "&limit=" + LIST_LIMIT));
+            case CREATE -> create();
+            case UPDATE -> {
+                long id = catalogId();
+                yield new Request(operation, builder("/products/" + id)
+                        .header("Content-Type", "application/json")
+                        .PUT(json(product("updated " + id)))
+                        .build());
+            }
+            case DELETE -> {
+                Long id = createdIds.poll();
+                // Until the first create has answered there is nothing of the run's own to delete.
+                yield id == null ? create() : new Request(operation, builder("/products/" + id).DELETE().build());
+            }
+        };
+    }
+
+    void completed(Request request, int status, String body) {
+        if (request.operation() == Operation.CREATE && status == 200) {
+            try {
+                createdIds.add(objectMapper.readTree(body).get("id").asLong());
+            } catch (JsonProcessingException ex) {
+                throw new IllegalStateException("Unexpected create response: " + body, ex);
+            }
+        }
+    }
+
+    private Request create() {
+        return new Request(Operation.CREATE, builder("/products")
+                .header("Content-Type", "application/json")
+                .POST(json(product("loadtest " + created++)))
+                .build());
+    }
+
+    private Operation pick() {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("Weight out of range: " + value);
+    }
+
+    private long catalogId() {
+        return 1 + random.nextInt(catalogSize);
+    }
+
+    private Map<String, Object> product(String name) {
+        return Map.of("name", name, "description", "Description of " + name, "country", "Country " + random.nextInt(20),
+                "price", random.nextInt(1000) / 10.0, "quantity", random.nextInt(100));
+    }
+
+    private HttpRequest get(String path) {
+        return builder(path).GET().build();
+    }
+
+    private HttpRequest.Builder builder(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(timeout);
+    }
+
+    private HttpRequest.BodyPublisher json(Object value) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(value));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    record Request(Operation operation, HttpRequest httpRequest) {
+    }
+}
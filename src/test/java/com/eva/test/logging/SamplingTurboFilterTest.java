@@ -0,0 +1,46 @@
+package com.eva.test.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SamplingTurboFilterTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+    private SamplingTurboFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new SamplingTurboFilter();
+        filter.setRate(0.0);
+        filter.addLogger("com.eva.test.service");
+    }
+
+    @Test
+    void testDropsSampledOutInfoEvents() {
+        Logger logger = loggerContext.getLogger("com.eva.test.service.productServiceImpl.ProductServiceImpl");
+
+        assertEquals(FilterReply.DENY, filter.decide(null, logger, Level.INFO, "Fetching {}", null, null));
+    }
+
+    @Test
+    void testAlwaysPassesWarnings() {
+        Logger logger = loggerContext.getLogger("com.eva.test.service");
+
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.WARN, "Slow", null, null));
+    }
+
+    @Test
+    void testIgnoresOtherLoggersAndLevelChecks() {
+        Logger other = loggerContext.getLogger("com.eva.test.serviceRegistry");
+        Logger sampled = loggerContext.getLogger("com.eva.test.service");
+
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, other, Level.INFO, "Hello", null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, sampled, Level.INFO, null, null, null));
+    }
+}
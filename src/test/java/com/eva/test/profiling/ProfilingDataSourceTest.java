@@ -0,0 +1,92 @@
+package com.eva.test.profiling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProfilingDataSourceTest {
+
+    private static final String SQL = "select p.id from products p where p.id=?";
+
+    private SlowQueryLog slowQueryLog;
+    private ProfilingDataSource profilingDataSource;
+    private ResultSet resultSet;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true, true, false);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(SQL)).thenReturn(statement);
+        DataSource targetDataSource = mock(DataSource.class);
+        when(targetDataSource.getConnection()).thenReturn(connection);
+        slowQueryLog = new SlowQueryLog(Duration.ZERO, 5, Duration.ofMinutes(1));
+        profilingDataSource = new ProfilingDataSource(targetDataSource, slowQueryLog);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SqlProfile.end();
+    }
+
+    @Test
+    void testCountsStatementsAndRowsOfCurrentRequest() throws SQLException {
+        SqlProfile profile = SqlProfile.start(true);
+
+        runQuery();
+        runQuery();
+
+        assertEquals(2, profile.getStatements());
+        assertEquals(2, profile.getRows());
+        assertEquals(2, profile.mostRepeated().getValue());
+        assertEquals(SQL, profile.mostRepeated().getKey());
+        assertEquals(2, slowQueryLog.slowest().size());
+    }
+
+    @Test
+    void testLeavesResultSetsAloneWhenRowsAreNotCounted() throws SQLException {
+        SqlProfile profile = SqlProfile.start(false);
+
+        try (Connection connection = profilingDataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SQL)) {
+            assertSame(resultSet, statement.executeQuery());
+        }
+
+        assertEquals(1, profile.getStatements());
+        assertEquals(0, profile.getRows());
+        assertTrue(profile.serverTiming(0).contains(";desc=\"1 statements\","));
+    }
+
+    @Test
+    void testOutsideRequestOnlyFeedsSlowQueryLog() throws SQLException {
+        try (Connection connection = profilingDataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SQL)) {
+            assertSame(resultSet, statement.executeQuery());
+        }
+
+        assertNull(SqlProfile.current());
+        assertEquals(SQL, slowQueryLog.slowest().get(0).sql());
+    }
+
+    private void runQuery() throws SQLException {
+        try (Connection connection = profilingDataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SQL);
+             ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                assertNotNull(rows);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.eva.test.profiling;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlProfilingFilterTest {
+
+    private SlowQueryLog slowQueryLog;
+    private SimpleMeterRegistry meterRegistry;
+    private SqlProfilingFilter filter;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    void setUp() {
+        slowQueryLog = new SlowQueryLog(Duration.ofSeconds(1), 5, Duration.ofMinutes(1));
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new SqlProfilingFilter(slowQueryLog, meterRegistry, 3, true);
+        request = new MockHttpServletRequest("GET", "/products/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/products/{id}");
+    }
+
+    @Test
+    void testAddsServerTimingBeforeBody() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            SqlProfile.current().recordStatement("select 1", 1_000_000);
+            SqlProfile.current().recordRow();
+            res.getOutputStream().write('x');
+            res.flushBuffer();
+        });
+
+        assertTrue(response.getHeader(SqlProfilingFilter.SERVER_TIMING)
+                .startsWith("db;dur=1.0;desc=\"1 statements, 1 rows\", total;dur="));
+        assertNull(SqlProfile.current());
+        assertEquals(1.0, meterRegistry.get("products.sql.statements").tag("uri", "/products/{id}")
+                .summary().totalAmount());
+    }
+
+    @Test
+    void testAddsServerTimingWithoutBody() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> { });
+
+        assertNotNull(response.getHeader(SqlProfilingFilter.SERVER_TIMING));
+        assertTrue(slowQueryLog.repeated().isEmpty());
+    }
+
+    @Test
+    void testFlagsRepeatedStatement() throws Exception {
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            for (int i = 0; i < 3; i++) {
+                SqlProfile.current().recordStatement("select * from products where id=?", 1_000);
+            }
+        });
+
+        assertEquals(1, slowQueryLog.repeated().size());
+        assertEquals("GET /products/{id}", slowQueryLog.repeated().get(0).request());
+        assertEquals(3, slowQueryLog.repeated().get(0).executions());
+    }
+
+    @Test
+    void testIgnoresRepeatedWritesAndSequenceCalls() throws Exception {
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            for (int i = 0; i < 3; i++) {
+                SqlProfile.current().recordStatement("insert into products (name,id) values (?,?)", 1_000);
+                SqlProfile.current().recordStatement("select nextval('products_seq')", 1_000);
+                SqlProfile.current().recordStatement("WITH chunk AS (SELECT p.id FROM products p) "
+                        + "DELETE FROM products p USING chunk c WHERE p.id = c.id RETURNING p.id", 1_000);
+            }
+        });
+
+        assertTrue(slowQueryLog.repeated().isEmpty());
+        assertEquals(9.0, meterRegistry.get("products.sql.statements").summary().totalAmount());
+    }
+}
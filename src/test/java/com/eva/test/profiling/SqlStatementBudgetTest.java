@@ -0,0 +1,94 @@
+package com.eva.test.profiling;
+
+import com.eva.test.entity.Product;
+import com.eva.test.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the round trips of the read endpoints through the always-on SQL profiler: each must
+ * run a fixed number of statements however many products it returns.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class SqlStatementBudgetTest {
+
+    private static final Pattern STATEMENTS = Pattern.compile("desc=\"(\\d+) statements");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private List<Long> ids;
+
+    @BeforeEach
+    void setUp() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            products.add(Product.builder().name("Budget " + i).description("Budget").country("UA")
+                    .price(10 + i).quantity(5).build());
+        }
+        ids = productRepository.saveAllAndFlush(products).stream().map(Product::getId).sorted().toList();
+    }
+
+    @Test
+    void testPageRunsSameStatementsForOneAndManyProducts() throws Exception {
+        long after = ids.get(0) - 1;
+
+        int one = statements("/products?after=" + after + "&limit=1");
+        int many = statements("/products?after=" + after + "&limit=20");
+
+        assertEquals(one, many);
+        assertTrue(many <= 2, many + " statements");
+    }
+
+    @Test
+    void testLookupRunsSameStatementsForOneAndManyIds() throws Exception {
+        int one = statements("/products?ids=" + ids.get(0));
+        int many = statements("/products?ids=" + ids.stream().map(String::valueOf).collect(Collectors.joining(",")));
+
+        assertEquals(one, many);
+        assertTrue(many <= 1, many + " statements");
+    }
+
+    @Test
+    void testGetByIdRunsAtMostOneStatement() throws Exception {
+        int total = IntStream.range(0, 3).map(i -> {
+            try {
+                return statements("/products/" + ids.get(i));
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }).sum();
+
+        assertTrue(total <= 3, total + " statements");
+    }
+
+    private int statements(String uri) throws Exception {
+        String serverTiming = mockMvc.perform(get(uri)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(SqlProfilingFilter.SERVER_TIMING);
+        assertNotNull(serverTiming, uri);
+        Matcher matcher = STATEMENTS.matcher(serverTiming);
+        assertTrue(matcher.find(), serverTiming);
+        return Integer.parseInt(matcher.group(1));
+    }
+}
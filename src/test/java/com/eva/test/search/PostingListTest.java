@@ -0,0 +1,62 @@
+package com.eva.test.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingListTest {
+
+    @Test
+    void testRangeScanSeesDeferredWrites() {
+        PostingList postings = new PostingList();
+        postings.add(1, 5.0);
+        postings.add(2, 1.0);
+        postings.add(3, 3.0);
+        assertTrue(postings.remove(1, 5.0));
+        assertFalse(postings.remove(1, 5.0));
+
+        assertEquals(2, postings.size());
+        assertEquals(List.of(3), docsIn(postings, 2.0, 5.0));
+        assertEquals(List.of(2, 3), docsIn(postings, 0.0, 10.0).stream().sorted().toList());
+    }
+
+    @Test
+    void testMatchesNaiveModelUnderRandomWrites() {
+        Random random = new Random(42);
+        PostingList postings = new PostingList();
+        Map<Integer, Double> model = new HashMap<>();
+        for (int step = 0; step < 20_000; step++) {
+            int doc = random.nextInt(2_000);
+            Double price = model.get(doc);
+            if (price != null) {
+                assertTrue(postings.remove(doc, price));
+                model.remove(doc);
+            } else {
+                double newPrice = random.nextInt(100);
+                postings.add(doc, newPrice);
+                model.put(doc, newPrice);
+            }
+            if (step % 1_000 == 0) {
+                double from = random.nextInt(100);
+                double to = from + random.nextInt(30);
+                List<Integer> expected = model.entrySet().stream()
+                        .filter(entry -> entry.getValue() >= from && entry.getValue() <= to)
+                        .map(Map.Entry::getKey).sorted().toList();
+                assertEquals(expected, docsIn(postings, from, to).stream().sorted().toList());
+                assertEquals(model.size(), postings.size());
+            }
+        }
+    }
+
+    private static List<Integer> docsIn(PostingList postings, double from, double to) {
+        List<Integer> docs = new ArrayList<>();
+        postings.forEachInRange(from, to, docs::add);
+        return docs;
+    }
+}
@@ -0,0 +1,153 @@
+package com.eva.test.search;
+
+import com.eva.test.config.ProductProperties;
+import com.eva.test.datasource.ReplicaRoutingDataSource;
+import com.eva.test.dto.ProductDTO;
+import com.eva.test.event.ProductChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchCoalescerTest {
+
+    private static final List<ProductDTO> RESULT = List.of(ProductDTO.builder().id(1L).name("Apple").build());
+
+    private ProductProperties productProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger queries;
+
+    @BeforeEach
+    void setUp() {
+        productProperties = new ProductProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        queries = new AtomicInteger();
+    }
+
+    @Test
+    void testConcurrentIdenticalSearchesShareOneQuery() throws Exception {
+        ProductSearchCoalescer coalescer = new ProductSearchCoalescer(productProperties, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<List<ProductDTO>> query = () -> {
+            queries.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return RESULT;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<ProductDTO>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> coalescer.search("apple", 1.0, 2.0, query)));
+            }
+            // Everyone but the first caller is waiting on its query before it is let go.
+            while (sharedCount() < 7) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<List<ProductDTO>> result : results) {
+                assertEquals(RESULT, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void testDifferentFiltersDoNotShare() {
+        ProductSearchCoalescer coalescer = new ProductSearchCoalescer(productProperties, meterRegistry);
+
+        coalescer.search("apple", 1.0, 2.0, this::query);
+        coalescer.search("apple", 1.0, 3.0, this::query);
+
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void testFinishedSearchIsNotReusedWithoutResultWindow() {
+        ProductSearchCoalescer coalescer = new ProductSearchCoalescer(productProperties, meterRegistry);
+
+        coalescer.search("apple", 1.0, 2.0, this::query);
+        coalescer.search("apple", 1.0, 2.0, this::query);
+
+        assertEquals(2, queries.get());
+        assertEquals(0, sharedCount());
+    }
+
+    @Test
+    void testResultWindowReusesFinishedSearchUntilProductChanges() {
+        productProperties.getSearch().getCoalescing().setResultWindow(Duration.ofMinutes(1));
+        ProductSearchCoalescer coalescer = new ProductSearchCoalescer(productProperties, meterRegistry);
+
+        assertEquals(RESULT, coalescer.search("apple", 1.0, 2.0, this::query));
+        assertEquals(RESULT, coalescer.search("apple", 1.0, 2.0, this::query));
+        assertEquals(1, queries.get());
+
+        coalescer.onProductChanged(ProductChangedEvent.deleted(1L));
+        coalescer.search("apple", 1.0, 2.0, this::query);
+
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void testCallersPinnedToPrimaryDoNotShareUnpinnedQueries() {
+        productProperties.getSearch().getCoalescing().setResultWindow(Duration.ofMinutes(1));
+        ProductSearchCoalescer coalescer = new ProductSearchCoalescer(productProperties, meterRegistry);
+
+        coalescer.search("apple", 1.0, 2.0, this::query);
+        ReplicaRoutingDataSource.onPrimary(() -> coalescer.search("apple", 1.0, 2.0, this::query));
+        ReplicaRoutingDataSource.onPrimary(() -> coalescer.search("apple", 1.0, 2.0, this::query));
+
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void testFailedSearchIsNotRemembered() {
+        productProperties.getSearch().getCoalescing().setResultWindow(Duration.ofMinutes(1));
+        ProductSearchCoalescer coalescer = new ProductSearchCoalescer(productProperties, meterRegistry);
+
+        assertThrows(IllegalStateException.class, () -> coalescer.search("apple", 1.0, 2.0, () -> {
+            throw new IllegalStateException("connection refused");
+        }));
+
+        assertEquals(RESULT, coalescer.search("apple", 1.0, 2.0, this::query));
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void testDisabledCoalescingRunsEveryQuery() {
+        productProperties.getSearch().getCoalescing().setEnabled(false);
+        productProperties.getSearch().getCoalescing().setResultWindow(Duration.ofMinutes(1));
+        ProductSearchCoalescer coalescer = new ProductSearchCoalescer(productProperties, meterRegistry);
+
+        coalescer.search("apple", 1.0, 2.0, this::query);
+        coalescer.search("apple", 1.0, 2.0, this::query);
+
+        assertEquals(2, queries.get());
+    }
+
+    private List<ProductDTO> query() {
+        queries.incrementAndGet();
+        return RESULT;
+    }
+
+    private double sharedCount() {
+        return meterRegistry.get("products.search.coalescing").tag("result", "shared").counter().count();
+    }
+}
@@ -0,0 +1,160 @@
+package com.eva.test.search;
+
+import com.eva.test.config.ProductProperties;
+import com.eva.test.dto.ProductDTO;
+import com.eva.test.entity.Product;
+import com.eva.test.event.ProductChangedEvent;
+import com.eva.test.mapper.ProductMapper;
+import com.eva.test.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ProductSearchIndexTest {
+
+    private ProductRepository productRepository;
+    private ProductMapper productMapper;
+    private ProductProperties productProperties;
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        productMapper = mock(ProductMapper.class);
+        productProperties = new ProductProperties();
+        productProperties.getSearch().getInMemory().setEnabled(true);
+        index = new ProductSearchIndex(productProperties, productRepository, productMapper,
+                mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void testBuildIndexesAllProducts() {
+        Product product = new Product(1L, "Green Apple", null, null, 2.5, 10, 0L);
+        when(productRepository.streamAllOrderByPrice()).thenReturn(Stream.of(product));
+        when(productMapper.toDto(any(Product.class))).thenReturn(dto(1L, "Green Apple", 2.5));
+
+        assertFalse(index.isReady());
+        index.build();
+
+        assertTrue(index.isReady());
+        assertEquals(List.of(1L), ids(index.search("APPLE", null, null, 10)));
+    }
+
+    @Test
+    void testBuildSkippedWhenDisabled() {
+        productProperties.getSearch().getInMemory().setEnabled(false);
+
+        index.build();
+
+        assertFalse(index.isReady());
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void testSearchMatchesSubstringBySimilarity() {
+        save(1L, "Red apple", 3.0);
+        save(2L, "Apple juice", 1.5);
+        save(3L, "Pineapple", 2.0);
+        save(4L, "Banana", 1.0);
+
+        // Similarities to "apple" are 0.6, 0.5 and 1/3, as pg_trgm computes them.
+        assertEquals(List.of(1L, 2L, 3L), ids(index.search("apple", null, null, 10)));
+        assertEquals(List.of(1L, 3L), ids(index.search("apple", 2.0, 3.0, 10)));
+        assertEquals(List.of(2L, 3L), ids(index.search("apple", null, 2.0, 10)));
+        assertEquals(List.of(1L), ids(index.search("apple", null, null, 1)));
+        assertEquals(List.of(), ids(index.search("pear", null, null, 10)));
+    }
+
+    @Test
+    void testEqualSimilarityIsOrderedById() {
+        save(3L, "Green tea", 1.0);
+        save(1L, "Black tea", 3.0);
+        save(2L, "White tea", 2.0);
+
+        assertEquals(List.of(1L, 2L, 3L), ids(index.search("tea", null, null, 10)));
+        assertEquals(List.of(1L, 2L), ids(index.search("tea", null, null, 2)));
+    }
+
+    @Test
+    void testSimilarityMatchesPgTrgm() {
+        assertEquals(0.6f, ProductSearchIndex.similarity(
+                ProductSearchIndex.wordGrams("apple"), ProductSearchIndex.wordGrams("red apple")));
+        assertEquals(1f, ProductSearchIndex.similarity(
+                ProductSearchIndex.wordGrams("apple"), ProductSearchIndex.wordGrams("apple!")));
+        assertEquals(0f, ProductSearchIndex.similarity(
+                ProductSearchIndex.wordGrams(""), ProductSearchIndex.wordGrams("apple")));
+    }
+
+    @Test
+    void testOlderStateDoesNotOverwriteNewerOne() {
+        index.onProductChanged(ProductChangedEvent.saved(
+                ProductDTO.builder().id(1L).name("Plum jam").price(2.0).version(3L).build()));
+
+        // A relayed state read before the local write that produced version 3.
+        index.onProductChanged(ProductChangedEvent.saved(
+                ProductDTO.builder().id(1L).name("Plum").price(1.0).version(2L).build()));
+
+        assertEquals(List.of(1L), ids(index.search("jam", null, null, 10)));
+    }
+
+    @Test
+    void testSearchRejectsCandidatesThatOnlyShareGrams() {
+        save(1L, "abcxbcd", 1.0);
+
+        assertEquals(List.of(), ids(index.search("abcd", null, null, 10)));
+    }
+
+    @Test
+    void testShortQueriesScanAllProducts() {
+        save(1L, "Kiwi", 2.0);
+        save(2L, "Fig", 1.0);
+
+        assertEquals(List.of(1L, 2L), ids(index.search("i", null, null, 10)));
+        assertEquals(List.of(1L, 2L), ids(index.search("", null, null, 10)));
+    }
+
+    @Test
+    void testUpdatesAndDeletesAreApplied() {
+        save(1L, "Orange", 2.0);
+        save(2L, "Blood orange", 4.0);
+
+        save(1L, "Lemon", 5.0);
+        index.onProductChanged(ProductChangedEvent.deleted(2L));
+
+        assertEquals(List.of(), ids(index.search("orange", null, null, 10)));
+        assertEquals(List.of(1L), ids(index.search("lemon", 5.0, 5.0, 10)));
+    }
+
+    @Test
+    void testDeletedSlotsAreReused() {
+        for (long id = 1; id <= 2000; id++) {
+            save(id, "Item " + id, id);
+        }
+        for (long id = 1; id <= 1000; id++) {
+            index.onProductChanged(ProductChangedEvent.deleted(id));
+        }
+        save(5000L, "Item special", 0.5);
+
+        assertEquals(1001, index.search("item", null, null, Integer.MAX_VALUE).size());
+        assertEquals(List.of(5000L), ids(index.search("special", null, null, 10)));
+    }
+
+    private void save(Long id, String name, double price) {
+        index.onProductChanged(ProductChangedEvent.saved(dto(id, name, price)));
+    }
+
+    private static ProductDTO dto(Long id, String name, double price) {
+        return ProductDTO.builder().id(id).name(name).price(price).build();
+    }
+
+    private static List<Long> ids(List<ProductDTO> products) {
+        return products.stream().map(ProductDTO::getId).toList();
+    }
+}
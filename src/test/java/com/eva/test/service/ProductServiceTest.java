@@ -1,23 +1,57 @@
 package com.eva.test.service;
 
+import com.eva.test.cache.ProductCache;
+import com.eva.test.config.ProductProperties;
+import com.eva.test.datasource.ReplicaRoutingDataSource;
+import com.eva.test.dto.ProductBulkUpdateDTO;
+import com.eva.test.dto.ProductChangeDTO;
+import com.eva.test.dto.ProductChangesDTO;
 import com.eva.test.dto.ProductDTO;
+import com.eva.test.dto.ProductFacetsDTO;
+import com.eva.test.dto.ProductLookupDTO;
+import com.eva.test.dto.ProductPageDTO;
 import com.eva.test.entity.Product;
+import com.eva.test.event.ProductChangedEvent;
+import com.eva.test.exception.BadRequestException;
+import com.eva.test.exception.GoneException;
+import com.eva.test.exception.InsufficientStockException;
 import com.eva.test.exception.NotFoundException;
+import com.eva.test.exception.PreconditionFailedException;
 import com.eva.test.mapper.ProductMapper;
+import com.eva.test.repository.ProductChangeRepository;
 import com.eva.test.repository.ProductRepository;
+import com.eva.test.search.ProductSearchCoalescer;
+import com.eva.test.search.ProductSearchIndex;
 import com.eva.test.service.productServiceImpl.ProductServiceImpl;
+import com.eva.test.stock.StockWriteBehindBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class ProductServiceTest {
@@ -28,6 +62,34 @@ class ProductServiceTest {
     @Mock
     private ProductMapper productMapper;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private ProductProperties productProperties = new ProductProperties();
+
+    @Mock
+    private StockWriteBehindBuffer stockWriteBehindBuffer;
+
+    @Mock
+    private ProductChangeRepository productChangeRepository;
+
+    @Spy
+    private ProductCache productCache = new ProductCache(new ProductProperties());
+
+    @Spy
+    private ProductSearchCoalescer productSearchCoalescer =
+            new ProductSearchCoalescer(new ProductProperties(), new SimpleMeterRegistry());
+
     @InjectMocks
     private ProductServiceImpl productService;
 
@@ -55,15 +117,65 @@ class ProductServiceTest {
 
     @Test
     void testGetAllProducts() {
-        when(productRepository.findAll()).thenReturn(Collections.singletonList(product));
-        when(productMapper.toDtoList(anyList())).thenReturn(Collections.singletonList(productDTO));
+        when(productRepository.findPageAfter(0L, Limit.of(51))).thenReturn(Collections.singletonList(productDTO));
 
-        List<ProductDTO> productList = productService.getAllProducts();
+        ProductPageDTO page = productService.getAllProducts(null, null);
 
-        assertNotNull(productList);
-        assertEquals(1, productList.size());
-        verify(productRepository, times(1)).findAll();
-        verify(productMapper, times(1)).toDtoList(anyList());
+        assertNotNull(page);
+        assertEquals(1, page.getProducts().size());
+        assertNull(page.getNextCursor());
+        verify(productRepository, times(1)).findPageAfter(0L, Limit.of(51));
+        verifyNoInteractions(productMapper);
+    }
+
+    @Test
+    void testGetAllProductsReturnsNextCursor() {
+        productDTO.setId(1L);
+        ProductDTO next = ProductDTO.builder().id(2L).build();
+        when(productRepository.findPageAfter(0L, Limit.of(2))).thenReturn(Arrays.asList(productDTO, next));
+
+        ProductPageDTO page = productService.getAllProducts(0L, 1);
+
+        assertEquals(1L, page.getNextCursor());
+        assertEquals(Collections.singletonList(productDTO), page.getProducts());
+    }
+
+    @Test
+    void testGetAllProductsClampsLimit() {
+        when(productRepository.findPageAfter(5L, Limit.of(1001))).thenReturn(Collections.emptyList());
+
+        ProductPageDTO page = productService.getAllProducts(5L, 1_000_000);
+
+        assertNull(page.getNextCursor());
+        verify(productRepository, times(1)).findPageAfter(5L, Limit.of(1001));
+    }
+
+    @Test
+    void testGetAllProductVersions() {
+        when(productRepository.findPageVersionsAfter(0L, Limit.of(2)))
+                .thenReturn(Arrays.asList(new Object[]{1L, 3L}, new Object[]{2L, 0L}));
+
+        ProductPageDTO page = productService.getAllProductVersions(null, 1);
+
+        assertEquals(1, page.getProducts().size());
+        assertEquals(1L, page.getProducts().get(0).getId());
+        assertEquals(3L, page.getProducts().get(0).getVersion());
+        assertEquals(1L, page.getNextCursor());
+        verify(productRepository, never()).findPageAfter(anyLong(), any());
+        verifyNoInteractions(productMapper);
+    }
+
+    @Test
+    void testExportProducts() {
+        when(productRepository.streamAll()).thenReturn(Stream.of(product));
+        when(productMapper.toDto(product)).thenReturn(productDTO);
+        List<ProductDTO> exported = new ArrayList<>();
+
+        productService.exportProducts(exported::add);
+
+        assertEquals(Collections.singletonList(productDTO), exported);
+        verify(productRepository, times(1)).streamAll();
+        verify(entityManager, times(1)).detach(product);
     }
 
     @Test
@@ -79,42 +191,238 @@ class ProductServiceTest {
         verify(productMapper, times(1)).toDto(any(Product.class));
     }
 
+    @Test
+    void testGetProductByIdServedFromCache() {
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productMapper.toDto(any(Product.class))).thenReturn(productDTO);
+
+        productService.getProductById(1L);
+        ProductDTO foundProduct = productService.getProductById(1L);
+
+        assertSame(productDTO, foundProduct);
+        verify(productRepository, times(1)).findById(1L);
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void testCacheFillsReadFromPrimary() {
+        List<Boolean> pinned = new ArrayList<>();
+        when(productRepository.findById(1L)).thenAnswer(invocation -> {
+            pinned.add(ReplicaRoutingDataSource.isPinnedToPrimary());
+            return Optional.of(product);
+        });
+        when(productRepository.findAllByIds(any())).thenAnswer(invocation -> {
+            pinned.add(ReplicaRoutingDataSource.isPinnedToPrimary());
+            return List.of();
+        });
+        when(productMapper.toDto(any(Product.class))).thenReturn(productDTO);
+
+        productService.getProductById(1L);
+        productService.getProductsByIds(List.of(2L));
+
+        assertEquals(List.of(true, true), pinned);
+        assertFalse(ReplicaRoutingDataSource.isPinnedToPrimary());
+    }
+
     @Test
     void testGetProductByIdNotFound() {
         when(productRepository.findById(1L)).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class, () -> productService.getProductById(1L));
-        verify(productRepository, times(1)).findById(1L);
+        assertThrows(NotFoundException.class, () -> productService.getProductById(1L));
+        verify(productRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void testGetProductsByIdsKeepsRequestOrderAndReportsMissing() {
+        ProductDTO cached = ProductDTO.builder().id(3L).name("Cached").build();
+        ProductDTO loaded = ProductDTO.builder().id(1L).name("Loaded").build();
+        when(productRepository.findById(3L)).thenReturn(Optional.of(product));
+        when(productMapper.toDto(any(Product.class))).thenReturn(cached);
+        productService.getProductById(3L);
+        when(productRepository.findAllByIds(any())).thenReturn(List.of(loaded));
+
+        ProductLookupDTO lookup = productService.getProductsByIds(List.of(7L, 3L, 1L, 3L));
+
+        assertEquals(List.of(cached, loaded), lookup.getProducts());
+        assertEquals(List.of(7L), lookup.getMissingIds());
+        verify(productRepository).findAllByIds(new Long[]{7L, 1L});
+        // The loaded product is now cached as well.
+        assertSame(loaded, productCache.getIfPresent(1L));
+    }
+
+    @Test
+    void testGetProductsByIdsServedFromCacheTakesNoConnection() {
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productMapper.toDto(any(Product.class))).thenReturn(productDTO);
+        productService.getProductById(1L);
+
+        ProductLookupDTO lookup = productService.getProductsByIds(List.of(1L));
+
+        assertEquals(List.of(productDTO), lookup.getProducts());
+        assertTrue(lookup.getMissingIds().isEmpty());
+        verify(productRepository, never()).findAllByIds(any());
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void testGetProductsByIdsRejectsTooManyIds() {
+        productProperties.getLookup().setMaxIds(2);
+
+        assertThrows(BadRequestException.class, () -> productService.getProductsByIds(List.of(1L, 2L, 3L)));
+        verify(productRepository, never()).findAllByIds(any());
+    }
+
+    @Test
+    void testGetProductVersion() {
+        when(productRepository.findVersionById(1L)).thenReturn(Optional.of(4L));
+
+        assertEquals(4L, productService.getProductVersion(1L));
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    void testGetProductVersionServedFromCache() {
+        productDTO.setVersion(2L);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productMapper.toDto(any(Product.class))).thenReturn(productDTO);
+        productService.getProductById(1L);
+
+        assertEquals(2L, productService.getProductVersion(1L));
+        verify(productRepository, never()).findVersionById(any());
+    }
+
+    @Test
+    void testGetProductVersionNotFound() {
+        when(productRepository.findVersionById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> productService.getProductVersion(1L));
     }
 
     @Test
     void testSearchProductsWithPriceRange() {
-        when(productRepository.searchProducts(anyString(), anyDouble(), anyDouble()))
-                .thenReturn(Collections.singletonList(product));
-        when(productMapper.toDtoList(anyList())).thenReturn(Collections.singletonList(productDTO));
+        when(productRepository.searchProducts("Test", 50.0, 150.0, 100))
+                .thenReturn(Collections.singletonList(productDTO));
 
         List<ProductDTO> productList = productService.searchProducts("Test", 50.0, 150.0);
 
         assertNotNull(productList);
         assertEquals(1, productList.size());
-        verify(productRepository, times(1)).searchProducts(anyString(), anyDouble(), anyDouble());
-        verify(productMapper, times(1)).toDtoList(anyList());
+        verify(productRepository, times(1)).searchProducts("Test", 50.0, 150.0, 100);
+        verify(productSearchCoalescer, times(1)).search(eq("Test"), eq(50.0), eq(150.0), any());
+        verifyNoInteractions(productMapper);
     }
 
     @Test
     void testSearchProductsWithoutPriceRange() {
-        when(productRepository.searchProducts(anyString(), isNull(), isNull()))
-                .thenReturn(Collections.singletonList(product));
-        when(productMapper.toDtoList(anyList())).thenReturn(Collections.singletonList(productDTO));
+        when(productRepository.searchProducts("Test", Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                100)).thenReturn(Collections.singletonList(productDTO));
 
         List<ProductDTO> productList = productService.searchProducts("Test", null, null);
 
         assertNotNull(productList);
         assertEquals(1, productList.size());
-        verify(productRepository, times(1)).searchProducts(anyString(), isNull(), isNull());
-        verify(productMapper, times(1)).toDtoList(anyList());
+        verify(productRepository, times(1))
+                .searchProducts("Test", Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 100);
     }
 
+    @Test
+    void testSearchProductsUsesInMemoryIndexWhenReady() {
+        when(productSearchIndex.isReady()).thenReturn(true);
+        when(productSearchIndex.search("Test", 50.0, null, 100)).thenReturn(Collections.singletonList(productDTO));
+
+        List<ProductDTO> productList = productService.searchProducts("Test", 50.0, null);
+
+        assertEquals(Collections.singletonList(productDTO), productList);
+        verifyNoInteractions(productRepository, transactionManager, productSearchCoalescer);
+    }
+
+    @Test
+    void testGetFacets() {
+        Double[] bounds = {10.0, 50.0, 100.0, 500.0, 1000.0};
+        when(productRepository.aggregateFacets(null, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, bounds))
+                .thenReturn(List.of(
+                        new Object[]{true, "PL", null, 3L, 30L},
+                        new Object[]{true, null, null, 1L, 5L},
+                        new Object[]{false, null, 1, 2L, 20L},
+                        new Object[]{false, null, 5, 2L, 15L}));
+
+        ProductFacetsDTO facets = productService.getFacets(null, null, null, null);
+
+        assertEquals(List.of(new ProductFacetsDTO.CountryFacet("PL", 3, 30),
+                new ProductFacetsDTO.CountryFacet(null, 1, 5)), facets.getCountries());
+        assertEquals(6, facets.getPriceBuckets().size());
+        assertEquals(new ProductFacetsDTO.PriceBucket(null, 10.0, 0, 0), facets.getPriceBuckets().get(0));
+        assertEquals(new ProductFacetsDTO.PriceBucket(10.0, 50.0, 2, 20), facets.getPriceBuckets().get(1));
+        assertEquals(new ProductFacetsDTO.PriceBucket(1000.0, null, 2, 15), facets.getPriceBuckets().get(5));
+    }
+
+    @Test
+    void testGetFacetsWithFiltersAndBuckets() {
+        when(productRepository.aggregateFacets("Test", 50.0, Double.POSITIVE_INFINITY, new Double[]{100.0}))
+                .thenReturn(List.of());
+
+        ProductFacetsDTO facets = productService.getFacets("Test", 50.0, null, List.of(100.0));
+
+        assertTrue(facets.getCountries().isEmpty());
+        assertEquals(List.of(new ProductFacetsDTO.PriceBucket(null, 100.0, 0, 0),
+                new ProductFacetsDTO.PriceBucket(100.0, null, 0, 0)), facets.getPriceBuckets());
+    }
+
+    @Test
+    void testGetChangesWithoutSinceReturnsHead() {
+        when(productChangeRepository.head()).thenReturn(42L);
+
+        ProductChangesDTO changes = productService.getChanges(null, null);
+
+        assertTrue(changes.getChanges().isEmpty());
+        assertEquals(42L, changes.getNextSince());
+        verify(productChangeRepository, never()).findChangesAfter(anyLong(), anyInt());
+    }
+
+    @Test
+    void testGetChangesCollapsesChangesPerProduct() {
+        ProductChangeDTO first = new ProductChangeDTO(11L, 1L, false, productDTO);
+        ProductChangeDTO other = new ProductChangeDTO(12L, 2L, false, new ProductDTO());
+        ProductChangeDTO deleted = new ProductChangeDTO(13L, 1L, true, null);
+        when(productChangeRepository.horizon()).thenReturn(5L);
+        when(productChangeRepository.findChangesAfter(10L, productProperties.getPage().getDefaultLimit()))
+                .thenReturn(List.of(first, other, deleted));
+
+        ProductChangesDTO changes = productService.getChanges(10L, null);
+
+        assertEquals(List.of(other, deleted), changes.getChanges());
+        assertEquals(13L, changes.getNextSince());
+    }
+
+    @Test
+    void testGetChangesWithoutNewChangesKeepsPosition() {
+        when(productChangeRepository.horizon()).thenReturn(5L);
+        when(productChangeRepository.findChangesAfter(10L, 3)).thenReturn(List.of());
+
+        ProductChangesDTO changes = productService.getChanges(10L, 3);
+
+        assertTrue(changes.getChanges().isEmpty());
+        assertEquals(10L, changes.getNextSince());
+    }
+
+    @Test
+    void testGetChangesBeforeHorizon() {
+        when(productChangeRepository.horizon()).thenReturn(20L);
+
+        assertThrows(GoneException.class, () -> productService.getChanges(10L, null));
+        verify(productChangeRepository, never()).findChangesAfter(anyLong(), anyInt());
+    }
+
+    @Test
+    void testGetFacetsRejectsInvalidBuckets() {
+        assertThrows(BadRequestException.class, () -> productService.getFacets(null, null, null, List.of(50.0, 10.0)));
+        assertThrows(BadRequestException.class,
+                () -> productService.getFacets(null, null, null, List.of(Double.POSITIVE_INFINITY)));
+        productProperties.getFacets().setMaxPriceBuckets(1);
+        assertThrows(BadRequestException.class, () -> productService.getFacets(null, null, null, List.of(1.0, 2.0)));
+        verifyNoInteractions(productRepository);
+    }
 
     @Test
     void testSaveProduct() {
@@ -129,31 +437,177 @@ class ProductServiceTest {
         verify(productRepository, times(1)).save(any(Product.class));
         verify(productMapper, times(1)).toEntity(any(ProductDTO.class));
         verify(productMapper, times(1)).toDto(any(Product.class));
+        verify(eventPublisher, times(1)).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportProductsInChunks() {
+        productProperties.getBatch().setChunkSize(2);
+        when(productMapper.toEntity(any(ProductDTO.class))).thenAnswer(invocation -> new Product());
+        when(productMapper.toDto(any(Product.class))).thenReturn(productDTO);
+
+        int imported = productService.importProducts(List.of(productDTO, productDTO, productDTO).iterator());
+
+        assertEquals(3, imported);
+        verify(productRepository, times(2)).saveAll(anyList());
+        verify(entityManager, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+        verify(transactionManager, times(2)).commit(any());
+        verify(eventPublisher, times(3)).publishEvent(any(ProductChangedEvent.class));
     }
 
     @Test
-    void testUpdateProduct() {
+    void testUpdateProductAppliesAllFields() {
+        product.setVersion(1L);
+        productDTO.setName("New Name");
+        productDTO.setDescription(null);
+        productDTO.setPrice(5.0);
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
-        when(productRepository.save(any(Product.class))).thenReturn(product);
         when(productMapper.toDto(any(Product.class))).thenReturn(productDTO);
 
-        ProductDTO updatedProduct = productService.updateProduct(1L, productDTO);
+        ProductDTO updatedProduct = productService.updateProduct(1L, null, productDTO);
 
-        assertNotNull(updatedProduct);
-        assertEquals("Test Product", updatedProduct.getName());
-        verify(productRepository, times(1)).findById(1L);
-        verify(productRepository, times(1)).save(any(Product.class));
-        verify(productMapper, times(1)).toDto(any(Product.class));
+        assertSame(productDTO, updatedProduct);
+        assertEquals("New Name", product.getName());
+        assertNull(product.getDescription());
+        assertEquals(5.0, product.getPrice());
+        verify(entityManager, times(1)).flush();
+        verify(productRepository, never()).save(any(Product.class));
+        verify(eventPublisher, times(1)).publishEvent(any(ProductChangedEvent.class));
     }
 
     @Test
     void testUpdateProductNotFound() {
         when(productRepository.findById(1L)).thenReturn(Optional.empty());
 
-        assertThrows(NotFoundException.class, () -> productService.updateProduct(1L, productDTO));
+        assertThrows(NotFoundException.class, () -> productService.updateProduct(1L, null, productDTO));
         verify(productRepository, times(1)).findById(1L);
     }
 
+    @Test
+    void testPatchProductSetsOnlyPatchedFields() {
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("price", 7);
+        patch.put("country", null);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productMapper.toDto(any(Product.class))).thenReturn(productDTO);
+
+        productService.patchProduct(1L, null, patch);
+
+        assertEquals(7.0, product.getPrice());
+        assertNull(product.getCountry());
+        assertEquals("Test Product", product.getName());
+        assertEquals(10, product.getQuantity());
+    }
+
+    @Test
+    void testPatchProductRejectsInvalidFields() {
+        assertThrows(BadRequestException.class, () -> productService.patchProduct(1L, null, Map.of("id", 2)));
+        assertThrows(BadRequestException.class, () -> productService.patchProduct(1L, null, Map.of("quantity", "x")));
+        Map<String, Object> nullPrice = new HashMap<>();
+        nullPrice.put("price", null);
+        assertThrows(BadRequestException.class, () -> productService.patchProduct(1L, null, nullPrice));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void testUpdateAndPatchRejectMissingName() {
+        productDTO.setName(null);
+        assertThrows(BadRequestException.class, () -> productService.updateProduct(1L, null, productDTO));
+        productDTO.setName(" ");
+        assertThrows(BadRequestException.class, () -> productService.updateProduct(1L, null, productDTO));
+        Map<String, Object> nullName = new HashMap<>();
+        nullName.put("name", null);
+        assertThrows(BadRequestException.class, () -> productService.patchProduct(1L, null, nullName));
+        assertThrows(BadRequestException.class, () -> productService.patchProduct(1L, null, Map.of("name", "")));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void testPatchProductWithVersionSkipsSelect() {
+        Query query = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString(), eq(Product.class))).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.getResultList()).thenReturn(Collections.singletonList(product));
+        when(productMapper.toDto(product)).thenReturn(productDTO);
+
+        productService.patchProduct(1L, 3L, Map.of("quantity", 4));
+
+        verify(entityManager).createNativeQuery(
+                "UPDATE products SET quantity = :quantity, version = version + 1 WHERE id = :id AND version = :version RETURNING *",
+                Product.class);
+        verify(query).setParameter("version", 3L);
+        verify(query).setParameter("quantity", 4);
+        verify(productRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void testPatchProductWithStaleVersion() {
+        Query query = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString(), eq(Product.class))).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.getResultList()).thenReturn(Collections.emptyList());
+        when(productRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(PreconditionFailedException.class,
+                () -> productService.patchProduct(1L, 3L, Map.of("quantity", 4)));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void testUpdateProductWithStaleVersionWithoutChanges() {
+        product.setVersion(4L);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        assertThrows(PreconditionFailedException.class, () -> productService.patchProduct(1L, 3L, Map.of()));
+    }
+
+    @Test
+    void testAdjustStock() {
+        when(productRepository.adjustStock(1L, -3)).thenReturn(1);
+
+        productService.adjustStock(1L, -3);
+
+        verify(productRepository, times(1)).adjustStock(1L, -3);
+        verify(productRepository, never()).findById(anyLong());
+        verify(eventPublisher, times(1)).publishEvent(argThat((ProductChangedEvent event) ->
+                event.getType() == ProductChangedEvent.Type.STOCK_ADJUSTED && event.getQuantityDelta() == -3));
+    }
+
+    @Test
+    void testAdjustStockInsufficient() {
+        when(productRepository.adjustStock(1L, -30)).thenReturn(0);
+        when(productRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(InsufficientStockException.class, () -> productService.adjustStock(1L, -30));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void testAdjustStockNotFound() {
+        when(productRepository.adjustStock(1L, 5)).thenReturn(0);
+        when(productRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> productService.adjustStock(1L, 5));
+    }
+
+    @Test
+    void testAdjustStockRejectsZero() {
+        assertThrows(BadRequestException.class, () -> productService.adjustStock(1L, 0));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void testAdjustStockWriteBehind() {
+        when(stockWriteBehindBuffer.isEnabled()).thenReturn(true);
+
+        productService.adjustStock(1L, -3);
+
+        verify(stockWriteBehindBuffer, times(1)).adjust(1L, -3);
+        verifyNoInteractions(productRepository);
+    }
+
     @Test
     void testDeleteProduct() {
         when(productRepository.existsById(1L)).thenReturn(true);
@@ -163,6 +617,8 @@ class ProductServiceTest {
 
         verify(productRepository, times(1)).existsById(1L);
         verify(productRepository, times(1)).deleteById(1L);
+        verify(eventPublisher, times(1)).publishEvent(argThat((ProductChangedEvent event) ->
+                event.getType() == ProductChangedEvent.Type.DELETED && event.getProductId() == 1L));
     }
 
     @Test
@@ -172,5 +628,53 @@ class ProductServiceTest {
         assertThrows(NotFoundException.class, () -> productService.deleteProduct(1L));
         verify(productRepository, times(1)).existsById(1L);
     }
+
+    @Test
+    void testUpdateProductsContinuesAfterLastChunk() {
+        productProperties.getBatch().setCriteriaChunkSize(2);
+        List<ProductDTO> firstChunk = List.of(ProductDTO.builder().id(9L).build(), ProductDTO.builder().id(4L).build());
+        List<ProductDTO> lastChunk = List.of(ProductDTO.builder().id(12L).build());
+        when(productRepository.updateMatching("apple", "PL", 1.0, Double.POSITIVE_INFINITY, 0L, 2, 1.1, null))
+                .thenReturn(firstChunk);
+        when(productRepository.updateMatching("apple", "PL", 1.0, Double.POSITIVE_INFINITY, 9L, 2, 1.1, null))
+                .thenReturn(lastChunk);
+
+        long updated = productService.updateProducts("apple", "PL", 1.0, null, new ProductBulkUpdateDTO(1.1, null));
+
+        assertEquals(3, updated);
+        verify(transactionManager, times(2)).getTransaction(any());
+        verify(eventPublisher, times(3)).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void testUpdateProductsRequiresCriteriaAndChange() {
+        assertThrows(BadRequestException.class,
+                () -> productService.updateProducts(" ", null, null, null, new ProductBulkUpdateDTO(1.1, null)));
+        assertThrows(BadRequestException.class,
+                () -> productService.updateProducts(null, "PL", null, null, new ProductBulkUpdateDTO()));
+        assertThrows(BadRequestException.class,
+                () -> productService.updateProducts(null, "PL", null, null, new ProductBulkUpdateDTO(0.0, null)));
+        assertThrows(BadRequestException.class,
+                () -> productService.updateProducts(null, "PL", null, null, new ProductBulkUpdateDTO(null, -1)));
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void testDeleteProductsPublishesDeletions() {
+        when(productRepository.deleteMatching(null, "PL", Double.NEGATIVE_INFINITY, 5.0, 0L, 5000))
+                .thenReturn(List.of(3L, 1L));
+
+        assertEquals(2, productService.deleteProducts(null, "PL", null, 5.0));
+
+        verify(eventPublisher).publishEvent(argThat((ProductChangedEvent event) ->
+                event.getType() == ProductChangedEvent.Type.DELETED && event.getProductId() == 3L));
+        verify(productRepository, times(1)).deleteMatching(any(), any(), anyDouble(), anyDouble(), anyLong(), anyInt());
+    }
+
+    @Test
+    void testDeleteProductsRequiresCriteria() {
+        assertThrows(BadRequestException.class, () -> productService.deleteProducts(null, "", null, null));
+        verifyNoInteractions(transactionManager);
+    }
 }
 
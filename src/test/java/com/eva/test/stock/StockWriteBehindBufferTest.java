@@ -0,0 +1,189 @@
+package com.eva.test.stock;
+
+import com.eva.test.config.ProductProperties;
+import com.eva.test.event.ProductChangedEvent;
+import com.eva.test.exception.InsufficientStockException;
+import com.eva.test.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StockWriteBehindBufferTest {
+
+    private ProductRepository productRepository;
+    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
+    private SimpleMeterRegistry meterRegistry;
+    private StockWriteBehindBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        meterRegistry = new SimpleMeterRegistry();
+        ProductProperties productProperties = new ProductProperties();
+        productProperties.getStock().getWriteBehind().setEnabled(true);
+        buffer = new StockWriteBehindBuffer(productProperties, productRepository, jdbcTemplate,
+                mock(PlatformTransactionManager.class), eventPublisher, meterRegistry);
+        when(productRepository.findQuantityById(1L)).thenReturn(Optional.of(10));
+    }
+
+    @Test
+    void testDeltasAreCoalescedIntoIncrementAndDecrementRows() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1});
+
+        buffer.adjust(1L, -3);
+        buffer.adjust(1L, -2);
+        buffer.adjust(1L, 1);
+        buffer.adjust(1L, 2);
+        buffer.flush();
+
+        verify(productRepository, times(1)).findQuantityById(1L);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), argThat((List<Object[]> rows) ->
+                rows.size() == 2 && (int) rows.get(0)[0] == 3 && (int) rows.get(1)[0] == -5
+                        && (Long) rows.get(1)[1] == 1L));
+        verify(eventPublisher, times(2)).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void testOversellIsRefused() {
+        buffer.adjust(1L, -8);
+
+        assertThrows(InsufficientStockException.class, () -> buffer.adjust(1L, -3));
+        buffer.adjust(1L, -2);
+        assertThrows(InsufficientStockException.class, () -> buffer.adjust(1L, -1));
+    }
+
+    @Test
+    void testConcurrentSalesNeverOversell() throws Exception {
+        AtomicInteger sold = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 100; i++) {
+            executor.execute(() -> {
+                try {
+                    buffer.adjust(1L, -1);
+                    sold.incrementAndGet();
+                } catch (InsufficientStockException ignored) {
+                    // expected once the stock is gone
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(10, sold.get());
+    }
+
+    @Test
+    void testFailedFlushKeepsDeltas() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new IllegalStateException("database down"))
+                .thenReturn(new int[]{1});
+
+        buffer.adjust(1L, -3);
+        buffer.flush();
+        buffer.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), argThat((List<Object[]> rows) ->
+                rows.size() == 1 && (int) rows.get(0)[0] == -3));
+    }
+
+    @Test
+    void testReloadDuringFlushStillCountsFlushingDeltas() {
+        buffer.adjust(1L, -8);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            // Not committed yet: the database still has 10.
+            buffer.onProductChanged(ProductChangedEvent.deleted(1L));
+            assertThrows(InsufficientStockException.class, () -> buffer.adjust(1L, -3));
+            return new int[]{1};
+        });
+
+        buffer.flush();
+
+        verify(productRepository, times(2)).findQuantityById(1L);
+    }
+
+    @Test
+    void testReloadAfterFlushDoesNotCountFlushedDeltasTwice() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+        buffer.adjust(1L, -8);
+        buffer.flush();
+        when(productRepository.findQuantityById(1L)).thenReturn(Optional.of(2));
+
+        buffer.onProductChanged(ProductChangedEvent.deleted(1L));
+        buffer.adjust(1L, -2);
+
+        assertThrows(InsufficientStockException.class, () -> buffer.adjust(1L, -1));
+    }
+
+    @Test
+    void testRejectedAdjustmentIsCounted() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{0});
+        buffer.adjust(1L, -3);
+
+        buffer.flush();
+
+        assertEquals(1, meterRegistry.get("products.stock.write-behind.rejected").counter().count());
+        verify(eventPublisher, never()).publishEvent(any());
+        // Reloaded from the database, without the rejected delta.
+        buffer.adjust(1L, -10);
+        verify(productRepository, times(2)).findQuantityById(1L);
+    }
+
+    @Test
+    void testExternalWriteDuringLoadReloadsAvailableStock() {
+        when(productRepository.findQuantityById(1L)).thenAnswer(invocation -> {
+            // Committed after this load read the quantity.
+            buffer.onProductChanged(ProductChangedEvent.deleted(1L));
+            return Optional.of(10);
+        }).thenReturn(Optional.of(2));
+
+        buffer.adjust(1L, -2);
+
+        assertThrows(InsufficientStockException.class, () -> buffer.adjust(1L, -1));
+        verify(productRepository, times(2)).findQuantityById(1L);
+    }
+
+    @Test
+    void testRejectedDecrementKeepsIncrements() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+        buffer.adjust(1L, 5);
+        buffer.adjust(1L, -12);
+
+        buffer.flush();
+
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof ProductChangedEvent changed
+                && changed.getType() == ProductChangedEvent.Type.STOCK_ADJUSTED));
+        assertEquals(1, meterRegistry.get("products.stock.write-behind.rejected").counter().count());
+        // Both left the pending sums: the increment is committed, the decrement dropped.
+        reset(jdbcTemplate);
+        buffer.flush();
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testExternalWriteReloadsAvailableStock() {
+        buffer.adjust(1L, -8);
+        when(productRepository.findQuantityById(1L)).thenReturn(Optional.of(50));
+
+        buffer.onProductChanged(ProductChangedEvent.deleted(1L));
+        buffer.adjust(1L, -40);
+
+        verify(productRepository, times(2)).findQuantityById(1L);
+    }
+}
@@ -0,0 +1,14 @@
+-- Load-test catalog: ${catalogSize} products with ids 1..${catalogSize}, the same rows on every run
+-- and the same ones BenchmarkData generates. Only applied to the database the load test creates.
+INSERT INTO products (id, name, description, country, price, quantity, version)
+SELECT i + 1, seeded.name, 'Description of ' || seeded.name, 'Country ' || (i % 20), (i % 1000) / 10.0, i % 100, 0
+FROM generate_series(0, ${catalogSize} - 1) AS i,
+     LATERAL (SELECT words[1 + i % 16] || ' ' || words[1 + (i / 16) % 16] || ' ' || i AS name
+              FROM (SELECT ARRAY['apple', 'banana', 'cherry', 'milk', 'bread', 'cheese', 'coffee', 'tea', 'juice',
+                                 'butter', 'yogurt', 'honey', 'rice', 'pasta', 'salt', 'sugar'] AS words) AS vocabulary
+             ) AS seeded;
+
+-- Same rule as V0003: the pooled ids the application allocates must clear the seeded ones.
+SELECT setval('products_seq', (SELECT COALESCE(MAX(id), 0) FROM products) + 50, false);
+
+ANALYZE products;